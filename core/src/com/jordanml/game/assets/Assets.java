@@ -1,18 +1,24 @@
 package com.jordanml.game.assets;
 
+import java.util.Locale;
+
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.assets.AssetDescriptor;
 import com.badlogic.gdx.assets.AssetErrorListener;
 import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.TextureLoader.TextureParameter;
 import com.badlogic.gdx.audio.Music;
 import com.badlogic.gdx.audio.Sound;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.badlogic.gdx.graphics.Texture.TextureWrap;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
-import com.badlogic.gdx.graphics.g2d.TextureAtlas.AtlasRegion;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData;
+import com.badlogic.gdx.graphics.glutils.KTXTextureData;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
 
@@ -29,6 +35,12 @@ public class Assets implements Disposable, AssetErrorListener
     
     private AssetManager assetManager;
     
+    // Atlas file that was loaded, KTX or PNG pages
+    private String atlasFile;
+    
+    // Atlas with BC3 pages, loaded outside the asset manager; null when the PNG atlas is used
+    private TextureAtlas compressedAtlas;
+    
     public AssetLand land;
     public AssetDecorations decorations;
     public AssetPlayer player;
@@ -52,7 +64,26 @@ public class Assets implements Disposable, AssetErrorListener
      // set asset manager error handler
         assetManager.setErrorListener(this);
         // load texture atlas
-        assetManager.load(Constants.TEXTURE_ATLAS_OBJECTS, TextureAtlas.class);
+        // prefer the BC3 compressed atlas where S3TC is supported, the PNG atlas is the fallback
+        if (Gdx.graphics.supportsExtension("GL_EXT_texture_compression_s3tc")
+                && Gdx.files.internal(Constants.TEXTURE_ATLAS_OBJECTS_KTX).exists())
+        {
+            atlasFile = Constants.TEXTURE_ATLAS_OBJECTS_KTX;
+            compressedAtlas = loadCompressedAtlas(Gdx.files.internal(atlasFile));
+        }
+        else
+        {
+            atlasFile = Constants.TEXTURE_ATLAS_OBJECTS;
+            compressedAtlas = null;
+            assetManager.load(atlasFile, TextureAtlas.class);
+        }
+        // load background on its own texture, so that it can repeat
+        TextureParameter backgroundParam = new TextureParameter();
+        backgroundParam.minFilter = TextureFilter.Linear;
+        backgroundParam.magFilter = TextureFilter.Linear;
+        backgroundParam.wrapU = TextureWrap.Repeat;
+        backgroundParam.wrapV = TextureWrap.ClampToEdge;
+        assetManager.load(Constants.TEXTURE_BACKGROUND, Texture.class, backgroundParam);
         assetManager.load("music/menu_song.mp3", Music.class);
         assetManager.load("music/creep.wav", Music.class);
         assetManager.load("sounds/jump.ogg", Sound.class);
@@ -66,35 +97,203 @@ public class Assets implements Disposable, AssetErrorListener
             Gdx.app.debug(TAG, "asset: " + a);
         }
 
-        TextureAtlas atlas = assetManager.get(Constants.TEXTURE_ATLAS_OBJECTS);
-
-        // enable texture filtering for pixel smoothing
-        for (Texture t : atlas.getTextures())
-        {
-            t.setFilter(TextureFilter.Linear, TextureFilter.Linear);
-        }
+        // texture filters, including mipmaps, are set by the atlas description
+        TextureAtlas atlas = compressedAtlas != null ? compressedAtlas : assetManager.<TextureAtlas>get(atlasFile);
+        logAtlasMemory(atlas);
 
         // create game resource objects
-        land = new AssetLand(atlas);
-        decorations = new AssetDecorations(atlas);
-        player = new AssetPlayer(atlas);
-        bat = new AssetBat(atlas);
-        gui = new AssetGui(atlas);
+        Regions regions = new AtlasRegions(atlas);
+        land = new AssetLand(regions);
+        decorations = new AssetDecorations(assetManager);
+        player = new AssetPlayer(regions);
+        bat = new AssetBat(regions);
+        gui = new AssetGui(regions);
         music = new AssetMusic(assetManager);
         sound = new AssetSound(assetManager);
-        candy = new AssetCandy(atlas);
-        orb = new AssetOrb(atlas);
-        goal = new AssetGoal(atlas);
+        candy = new AssetCandy(regions);
+        orb = new AssetOrb(regions);
+        goal = new AssetGoal(regions);
         fonts = new AssetFonts();
     }
     
+    /**
+     * Sets up only what the simulation needs, without loading any texture or
+     * sound, so that levels can be simulated without GL or audio, e.g. by the
+     * headless runner. Regions are empty placeholders read from the atlas
+     * description: animations keep their frame counts and durations, so game
+     * logic that depends on them behaves the same. Sounds are null and do not
+     * play. Decorations, music and fonts are not available.
+     * 
+     * The objects are not changed afterwards, so simulations on several
+     * threads can share them.
+     */
+    public void initSimulation()
+    {
+        // Only parses the atlas description, the pages are not loaded
+        FileHandle atlasFile = Gdx.files.internal(Constants.TEXTURE_ATLAS_OBJECTS);
+        Regions regions = new PlaceholderRegions(new TextureAtlasData(atlasFile, atlasFile.parent(), false));
+        
+        land = new AssetLand(regions);
+        player = new AssetPlayer(regions);
+        bat = new AssetBat(regions);
+        gui = new AssetGui(regions);
+        sound = new AssetSound();
+        candy = new AssetCandy(regions);
+        orb = new AssetOrb(regions);
+        goal = new AssetGoal(regions);
+    }
+    
+    /**
+     * Looks up texture regions by name
+     */
+    private interface Regions
+    {
+        /**
+         * @return the region with the given name, or null
+         */
+        public TextureRegion find(String name);
+        
+        /**
+         * @return all regions with the given name, ordered by index
+         */
+        public Array<TextureRegion> findAll(String name);
+    }
+    
+    /**
+     * Regions of a loaded atlas
+     */
+    private static class AtlasRegions implements Regions
+    {
+        private final TextureAtlas atlas;
+        
+        AtlasRegions(TextureAtlas atlas)
+        {
+            this.atlas = atlas;
+        }
+        
+        @Override
+        public TextureRegion find(String name)
+        {
+            return atlas.findRegion(name);
+        }
+        
+        @Override
+        public Array<TextureRegion> findAll(String name)
+        {
+            return new Array<TextureRegion>(atlas.findRegions(name));
+        }
+    }
+    
+    /**
+     * Empty regions, one for each region in an atlas description. They have
+     * no texture and cannot be drawn.
+     */
+    private static class PlaceholderRegions implements Regions
+    {
+        private final TextureAtlasData data;
+        private final TextureRegion placeholder = new TextureRegion();
+        
+        PlaceholderRegions(TextureAtlasData data)
+        {
+            this.data = data;
+        }
+        
+        @Override
+        public TextureRegion find(String name)
+        {
+            for (TextureAtlasData.Region region : data.getRegions())
+            {
+                if (region.name.equals(name))
+                    return placeholder;
+            }
+            
+            return null;
+        }
+        
+        @Override
+        public Array<TextureRegion> findAll(String name)
+        {
+            Array<TextureRegion> regions = new Array<TextureRegion>();
+            
+            for (TextureAtlasData.Region region : data.getRegions())
+            {
+                if (region.name.equals(name))
+                    regions.add(placeholder);
+            }
+            
+            return regions;
+        }
+    }
+    
+    /**
+     * Loads an atlas whose pages are BC3 KTX files. The pages bring their own
+     * mipmaps: letting the atlas ask for generated ones would call
+     * glGenerateMipmap, which does not work on compressed textures.
+     * 
+     * @param file the atlas description
+     * @return the atlas
+     */
+    private TextureAtlas loadCompressedAtlas(FileHandle file)
+    {
+        TextureAtlasData data = new TextureAtlasData(file, file.parent(), false);
+        
+        // TextureAtlas only creates the textures of pages that have none
+        for (TextureAtlasData.Page page : data.getPages())
+            page.texture = new Texture(new KTXTextureData(page.textureFile, false));
+        
+        return new TextureAtlas(data);
+    }
+    
+    /**
+     * Logs the video memory used by the atlas pages as loaded, next to what
+     * the same pages would use as RGBA8888. Both include the mipmap chains
+     * where the pages are filtered with mipmaps.
+     * 
+     * @param atlas the loaded atlas
+     */
+    private void logAtlasMemory(TextureAtlas atlas)
+    {
+        long rgba = 0;
+        long loaded = 0;
+        
+        for (Texture t : atlas.getTextures())
+        {
+            boolean compressed = t.getTextureData() instanceof KTXTextureData;
+            int width = t.getWidth();
+            int height = t.getHeight();
+            
+            // sum the levels down to 1x1, or only the base level without mipmaps
+            while (true)
+            {
+                long bytes = (long) width * height * 4;
+                rgba += bytes;
+                // BC3 stores every started 4x4 block in 16 bytes
+                loaded += compressed ? (long) ((width + 3) / 4) * ((height + 3) / 4) * 16 : bytes;
+                
+                if (!t.getMinFilter().isMipMap() || (width == 1 && height == 1))
+                    break;
+                
+                width = Math.max(1, width / 2);
+                height = Math.max(1, height / 2);
+            }
+        }
+        
+        Gdx.app.debug(TAG, String.format(Locale.US, "%s: %d pages, VRAM %.1f MB as RGBA8888, %.1f MB as loaded",
+                atlasFile, atlas.getTextures().size, rgba / (1024.0 * 1024.0), loaded / (1024.0 * 1024.0)));
+    }
+    
     /**
      * Frees memory
      */
     @Override
     public void dispose()
     {
-        assetManager.dispose();
+        // Nothing was loaded for the simulation only
+        if (assetManager != null)
+            assetManager.dispose();
+        
+        if (compressedAtlas != null)
+            compressedAtlas.dispose();
     }
     
     /**
@@ -116,20 +315,20 @@ public class Assets implements Disposable, AssetErrorListener
         public final Animation<TextureRegion> animRun;
         public final Animation<TextureRegion> animJump;
         
-        public AssetPlayer(TextureAtlas atlas)
+        AssetPlayer(Regions atlas)
         {
-            Array<AtlasRegion> regions = null;
+            Array<TextureRegion> regions = null;
             
             // Idle animation
-            regions = atlas.findRegions("jack_idle");
+            regions = atlas.findAll("jack_idle");
             animIdle = new Animation<TextureRegion>(1.0f / 10.0f, regions, Animation.PlayMode.LOOP);
             
             // Run animation
-            regions = atlas.findRegions("jack_run");
+            regions = atlas.findAll("jack_run");
             animRun = new Animation<TextureRegion>(1.0f / 10.0f, regions, Animation.PlayMode.LOOP);
 
             // Jump animation
-            regions = atlas.findRegions("jack_jump");
+            regions = atlas.findAll("jack_jump");
             animJump = new Animation<TextureRegion>(1.0f / 10.0f, regions, Animation.PlayMode.NORMAL);
         }
     }
@@ -141,12 +340,12 @@ public class Assets implements Disposable, AssetErrorListener
     {
         public final Animation<TextureRegion> animNormal;
         
-        public AssetBat(TextureAtlas atlas)
+        AssetBat(Regions atlas)
         {
-            Array<AtlasRegion> regions = null;
+            Array<TextureRegion> regions = null;
             
             // Normal animation
-            regions = atlas.findRegions("bat");
+            regions = atlas.findAll("bat");
             animNormal = new Animation<TextureRegion>(1.0f / 10.0f, regions, Animation.PlayMode.LOOP);
         }
     }
@@ -155,17 +354,17 @@ public class Assets implements Disposable, AssetErrorListener
      */
     public class AssetLand
     {
-        public final AtlasRegion edge_norm;
-        public final AtlasRegion middle_norm;
-        public final AtlasRegion edge_float;
-        public final AtlasRegion middle_float;
+        public final TextureRegion edge_norm;
+        public final TextureRegion middle_norm;
+        public final TextureRegion edge_float;
+        public final TextureRegion middle_float;
         
-        public AssetLand(TextureAtlas atlas)
+        AssetLand(Regions atlas)
         {
-            edge_norm = atlas.findRegion("land_edge_norm");
-            middle_norm = atlas.findRegion("land_middle_norm");
-            edge_float = atlas.findRegion("land_edge_float");
-            middle_float = atlas.findRegion("land_middle_float");
+            edge_norm = atlas.find("land_edge_norm");
+            middle_norm = atlas.find("land_middle_norm");
+            edge_float = atlas.find("land_edge_float");
+            middle_float = atlas.find("land_middle_float");
         }
     }
     
@@ -174,11 +373,11 @@ public class Assets implements Disposable, AssetErrorListener
      */
     public class AssetDecorations
     {
-        public final AtlasRegion background;
+        public final Texture background;
         
-        public AssetDecorations(TextureAtlas atlas)
+        public AssetDecorations(AssetManager am)
         {
-            background = atlas.findRegion("background");
+            background = am.get(Constants.TEXTURE_BACKGROUND, Texture.class);
         }
     }
     
@@ -187,11 +386,11 @@ public class Assets implements Disposable, AssetErrorListener
      */
     public class AssetGui
     {
-        public final AtlasRegion pumpkin;
+        public final TextureRegion pumpkin;
         
-        public AssetGui(TextureAtlas atlas)
+        AssetGui(Regions atlas)
         {
-            pumpkin = atlas.findRegion("pumpkin");
+            pumpkin = atlas.find("pumpkin");
         }
     }
     
@@ -223,6 +422,15 @@ public class Assets implements Disposable, AssetErrorListener
             jump = am.get("sounds/jump.ogg", Sound.class);
             powerup = am.get("sounds/powerup.wav", Sound.class);
         }
+        
+        /**
+         * Silent sounds, for the simulation without audio
+         */
+        AssetSound()
+        {
+            jump = null;
+            powerup = null;
+        }
     }
     
     /**
@@ -230,11 +438,11 @@ public class Assets implements Disposable, AssetErrorListener
      */
     public class AssetCandy
     {
-        public final AtlasRegion candycorn;
+        public final TextureRegion candycorn;
         
-        public AssetCandy(TextureAtlas atlas)
+        AssetCandy(Regions atlas)
         {
-            candycorn = atlas.findRegion("candycorn");
+            candycorn = atlas.find("candycorn");
         }
     }
     
@@ -245,11 +453,11 @@ public class Assets implements Disposable, AssetErrorListener
     {
         public final Animation<TextureRegion> animNormal;
         
-        public AssetOrb(TextureAtlas atlas)
+        AssetOrb(Regions atlas)
         {
-            Array<AtlasRegion> regions = null;
+            Array<TextureRegion> regions = null;
             
-            regions = atlas.findRegions("powerup");
+            regions = atlas.findAll("powerup");
             animNormal = new Animation<TextureRegion>(1.0f / 10.0f, regions, Animation.PlayMode.LOOP);
         }
     }
@@ -262,14 +470,14 @@ public class Assets implements Disposable, AssetErrorListener
         public final Animation<TextureRegion> animNormal;
         public final Animation<TextureRegion> animExplode;
         
-        public AssetGoal(TextureAtlas atlas)
+        AssetGoal(Regions atlas)
         {
-            Array<AtlasRegion> regions = null;
+            Array<TextureRegion> regions = null;
             
-            regions = atlas.findRegions("lollipop");
+            regions = atlas.findAll("lollipop");
             animNormal = new Animation<TextureRegion>(1.0f / 10.0f, regions, Animation.PlayMode.LOOP);
             
-            regions = atlas.findRegions("explosionred");
+            regions = atlas.findAll("explosionred");
             animExplode = new Animation<TextureRegion>(1.0f / 5.0f, regions, Animation.PlayMode.NORMAL);
         }
     }
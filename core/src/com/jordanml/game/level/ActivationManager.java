@@ -0,0 +1,128 @@
+package com.jordanml.game.level;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+
+import com.jordanml.game.objects.AbstractGameObject;
+
+/**
+ * Keeps only the physics bodies near the player active. Bodies further away
+ * are switched off with PhysicsBody.setActive(false), which removes them from
+ * the broadphase and the solver, or from the TileBackend's loop, so a physics
+ * step only pays for the neighbourhood of the player and not for the whole
+ * level.
+ *
+ * The active area is the view around the player snapped out to a coarse grid of cells,
+ * plus a margin. Moving bodies are checked every update; while inactive,
+ * their objects are expected to keep moving themselves, and their bodies are
+ * moved to the object's position when they are switched back on. Pickups and
+ * the goal have no bodies, and the terrain body covers the whole level, so
+ * there are no static bodies to manage.
+ */
+public class ActivationManager
+{
+    /**
+     * cellSize - width and height of a grid cell in meters
+     * margin   - cells around the view that stay active
+     * movers   - moving objects, checked every update
+     */
+    private final float cellSize;
+    private final int margin;
+    private final Array<AbstractGameObject> movers;
+
+    // Active area, aligned to grid cells
+    private final Rectangle area;
+
+    private int activeMovers;
+
+    /**
+     * Creates a manager without bodies. Moving bodies are added with
+     * addMoving().
+     *
+     * @param cellSize width and height of a grid cell in meters
+     * @param margin   number of cells around the view that stay active
+     */
+    public ActivationManager(float cellSize, int margin)
+    {
+        this.cellSize = cellSize;
+        this.margin = margin;
+
+        movers = new Array<AbstractGameObject>(false, 16);
+        area = new Rectangle();
+    }
+
+    /**
+     * Adds a moving object. Its body is switched on and off by position.
+     *
+     * @param obj the object, its body must already exist
+     */
+    public void addMoving(AbstractGameObject obj)
+    {
+        movers.add(obj);
+    }
+
+    /**
+     * Forgets a moving object. Its body is left as it is.
+     *
+     * @param obj the object
+     */
+    public void removeMoving(AbstractGameObject obj)
+    {
+        movers.removeValue(obj, true);
+    }
+
+    /**
+     * Switches bodies on or off for the given view
+     *
+     * @param view the area of the world whose bodies are simulated
+     */
+    public void update(Rectangle view)
+    {
+        // Snap the view out to whole cells, then grow it by the margin
+        float left = ((float) Math.floor(view.x / cellSize) - margin) * cellSize;
+        float bottom = ((float) Math.floor(view.y / cellSize) - margin) * cellSize;
+        float right = ((float) Math.ceil((view.x + view.width) / cellSize) + margin) * cellSize;
+        float top = ((float) Math.ceil((view.y + view.height) / cellSize) + margin) * cellSize;
+        area.set(left, bottom, right - left, top - bottom);
+
+        updateMovers();
+    }
+
+    private void updateMovers()
+    {
+        activeMovers = 0;
+
+        for(AbstractGameObject obj : movers)
+        {
+            boolean inArea = area.contains(obj.position);
+
+            if(inArea != obj.body.isActive())
+            {
+                // The object moved on its own while its body was off
+                if(inArea)
+                    obj.body.setTransform(obj.position.x, obj.position.y, obj.body.getAngle());
+
+                obj.body.setActive(inArea);
+            }
+
+            if(inArea)
+                activeMovers++;
+        }
+    }
+
+    /**
+     * @return number of managed bodies that are active
+     */
+    public int getActiveCount()
+    {
+        return activeMovers;
+    }
+
+    /**
+     * @return number of managed bodies
+     */
+    public int getTotalCount()
+    {
+        return movers.size;
+    }
+}
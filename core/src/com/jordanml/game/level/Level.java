@@ -2,33 +2,45 @@ package com.jordanml.game.level;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Pixmap;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Array;
 
 import com.jordanml.game.objects.Land;
-import com.jordanml.game.objects.Orb;
 import com.jordanml.game.objects.Player;
 import com.jordanml.game.objects.AbstractGameObject;
-import com.jordanml.game.objects.Background;
 import com.jordanml.game.objects.Bats;
-import com.jordanml.game.objects.Candycorn;
 import com.jordanml.game.objects.Goal;
+import com.jordanml.game.objects.Pickups;
+import com.jordanml.game.objects.Terrain;
+import com.jordanml.game.render.RenderQueue;
+import com.jordanml.game.update.UpdateScheduler;
 
 public class Level
 {
     public static final String TAG = Level.class.getName();
     
     // Objects
-    public Array<Candycorn> candycorns;
+    public Pickups pickups;
     public Array<Land> lands;
-    public Array<Orb> orbs;
-    public Background background;
+    public Terrain terrain;
     public Player player;
     public Bats bats;
     public Goal goal;
     
     public boolean goalReached;
     
+    // Random numbers of the simulation, seeded so that replays repeat
+    public final RandomXS128 random;
+    
+    // Position the player starts at, and respawns at
+    private final Vector2 playerSpawn = new Vector2();
+    
+    // Size of the level in meters, one meter per pixel of the level image
+    private int width;
+    private int height;
+    
     public enum BLOCK_TYPE
     {
         EMPTY        (  0,   0,   0), // Black
@@ -74,8 +86,13 @@ public class Level
         }
     }
     
-    public Level(String filename)
+    /**
+     * @param filename the level image
+     * @param seed     seed of the level's random numbers
+     */
+    public Level(String filename, long seed)
     {
+        random = new RandomXS128(seed);
         init(filename);
     }
     
@@ -86,17 +103,14 @@ public class Level
      */
     private void init(String filename)
     {
-        candycorns = new Array<Candycorn>();
-        orbs = new Array<Orb>();
+        pickups = new Pickups();
         lands = new Array<Land>();
-        background = new Background(20,15);
         
         goalReached = false;
         
         // Load image file that represents the level data
         Pixmap pixmap = new Pixmap(Gdx.files.internal(filename));
         // Scan pixels from top-left to bottom-right
-        int lastPixel = -1;
         for (int pixelY = 0; pixelY < pixmap.getHeight(); pixelY++)
         {
             for (int pixelX = 0; pixelX < pixmap.getWidth(); pixelX++)
@@ -117,55 +131,23 @@ public class Level
                     // do nothing
                 } 
                 else if(isLand(currentPixel))
-                {                    
-                    if(lastPixel != currentPixel || !isLand(pixmap.getPixel(pixelX + 1, pixelY)))
-                    {
-                        /** DO NOTHING*/
-                    }
-                    else
-                    {
-                        // CHECK FOR MIDDLE
-                        // Check if current pixel is middle (extend)
-                        if(isLand(pixmap.getPixel(pixelX + 1, pixelY)))
-                        {
-                            if(!isLand(pixmap.getPixel(pixelX - 2, pixelY)))
-                            {
-                                // New land
-                                if(BLOCK_TYPE.LAND_NORM.sameColor(currentPixel))
-                                    obj = new Land(Land.LAND_TYPE.NORM);
-                                else
-                                    obj = new Land(Land.LAND_TYPE.FLOAT);
-
-                                obj.position.set(pixelX , baseHeight);
-
-                                lands.add((Land) obj);
-                            }
-                            else
-                            {
-                                // Extend Land
-                                lands.get(lands.size - 1).increaseLength(1);
-                            }
-                        }
-                            
-                    }
+                {
+                    // Land is collected in runs by initLands
                 } 
                 else if(BLOCK_TYPE.CANDY_CORN.sameColor(currentPixel))
                 {
-                    obj = new Candycorn();
-                    obj.position.set(pixelX, baseHeight + offsetHeight);
-                    candycorns.add((Candycorn) obj);
+                    pickups.add(Pickups.PICKUP_TYPE.CANDYCORN, pixelX, baseHeight + offsetHeight);
                 }
                 else if(BLOCK_TYPE.PLAYER_SPAWN.sameColor(currentPixel))
                 {
                     obj = new Player();
                     obj.position.set(pixelX, baseHeight * obj.dimension.y + offsetHeight);
                     player = (Player) obj;
+                    playerSpawn.set(obj.position);
                 }
                 else if(BLOCK_TYPE.ORB.sameColor(currentPixel))
                 {
-                    obj = new Orb();
-                    obj.position.set(pixelX, baseHeight + offsetHeight);
-                    orbs.add((Orb) obj);
+                    pickups.add(Pickups.PICKUP_TYPE.ORB, pixelX, baseHeight + offsetHeight);
                 }
                 else if(BLOCK_TYPE.GOAL.sameColor(currentPixel))
                 {
@@ -183,13 +165,128 @@ public class Level
                     Gdx.app.error(TAG, "Unknown object at x<" + pixelX + "> y<" + pixelY + ">: r<" + r + "> g<" + g
                             + "> b<" + b + "> a<" + a + ">");
                 }
-                lastPixel = currentPixel;
             }
         }
         
         // Bats initialized last, requires player position
         bats = new Bats(50.0f, this);
         bats.updatePlayerY(player.position.y);
+        
+        width = pixmap.getWidth();
+        height = pixmap.getHeight();
+        initLands(pixmap);
+        initTerrain();
+        pickups.build(width, height);
+        pixmap.dispose();
+    }
+    
+    /**
+     * Creates a Land for every horizontal run of land pixels of the same
+     * color. The edges of a Land are drawn on the first and last pixel of its
+     * run, so a run needs at least three pixels to have a middle piece.
+     * 
+     * @param pixmap the level image
+     */
+    private void initLands(Pixmap pixmap)
+    {
+        for(int pixelY = 0; pixelY < pixmap.getHeight(); pixelY++)
+        {
+            float baseHeight = pixmap.getHeight() - pixelY;
+            int pixelX = 0;
+            
+            while(pixelX < pixmap.getWidth())
+            {
+                int pixel = pixmap.getPixel(pixelX, pixelY);
+                int start = pixelX++;
+                
+                if(!isLand(pixel))
+                    continue;
+                
+                while(pixelX < pixmap.getWidth() && pixmap.getPixel(pixelX, pixelY) == pixel)
+                    pixelX++;
+                
+                int length = pixelX - start - 2;
+                
+                if(length < 1)
+                    continue;
+                
+                Land land;
+                
+                if(BLOCK_TYPE.LAND_NORM.sameColor(pixel))
+                    land = new Land(Land.LAND_TYPE.NORM);
+                else
+                    land = new Land(Land.LAND_TYPE.FLOAT);
+                
+                land.position.set(start + 1, baseHeight);
+                land.setLength(length);
+                lands.add(land);
+            }
+        }
+    }
+    
+    /**
+     * Traces the solid areas of all Land into the chain loops of the terrain
+     * body. Rows are split at a quarter and three quarters of a meter, where
+     * floating land starts and ends.
+     */
+    private void initTerrain()
+    {
+        // Land is placed between y = 1 and y = height + 1
+        float[] rowY = new float[(height + 2) * 3 + 1];
+        
+        for(int y = 0; y <= height + 1; y++)
+        {
+            rowY[y * 3] = y;
+            rowY[y * 3 + 1] = y + 0.25f;
+            rowY[y * 3 + 2] = y + 0.75f;
+        }
+        rowY[rowY.length - 1] = height + 2;
+        
+        TerrainCompiler compiler = new TerrainCompiler(width, 0, 1, rowY);
+        Rectangle area = new Rectangle();
+        
+        for(Land land : lands)
+        {
+            land.getSolidArea(area);
+            int bottom = terrainRow(area.y);
+            compiler.fill((int) area.x, bottom, (int) area.width, terrainRow(area.y + area.height) - bottom);
+        }
+        
+        terrain = new Terrain(compiler.compile());
+        Gdx.app.debug(TAG, "Terrain: " + lands.size + " land runs traced into " + terrain.getLoopCount() + " loops");
+    }
+    
+    /**
+     * @param y a height where a terrain row starts
+     * @return index of that row, see initTerrain
+     */
+    private int terrainRow(float y)
+    {
+        int meters = (int) Math.floor(y);
+        float fraction = y - meters;
+        
+        if(fraction < 0.125f)
+            return meters * 3;
+        if(fraction < 0.5f)
+            return meters * 3 + 1;
+        
+        return meters * 3 + 2;
+    }
+    
+    /**
+     * @return width of the level in meters
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+    
+    /**
+     * @return height of the level in meters
+     */
+    public int getHeight()
+    {
+        return height;
     }
     
     /**
@@ -213,50 +310,86 @@ public class Level
      * @param deltaTime time passed since the previous frame
      */
     public void update(float deltaTime)
-    {        
-        for(Land land : lands)
-        {
-            land.update(deltaTime);
-        }
-        
-        for(Orb orb : orbs)
-        {
-            orb.update(deltaTime);
-        }
+    {
+        // Work that only touches its own object, split across threads in large levels
+        UpdateScheduler.instance.run(pickups, pickups.size(), deltaTime);
+        UpdateScheduler.instance.run(bats, bats.getActiveCount(), deltaTime);
         
+        // Changes bodies, plays sounds or draws random numbers: this thread only
         player.update(deltaTime);
         bats.updatePlayerY(player.position.y);
-        bats.update(deltaTime);
+        bats.retireAndSpawn(deltaTime);
         goal.update(deltaTime);
     }
     
     /**
-     * Render level objects
-     * 
-     * @param batch
+     * Restarts the level after the player lost a life. The physics world and
+     * all bodies are kept: the player and bats are moved back to their spawn
+     * positions, and collected pickups become available again.
      */
-    public void render(SpriteBatch batch)
+    public void reset()
     {
-        //background.render(batch);
-        
-        for(Candycorn candycorn : candycorns)
-        {
-            candycorn.render(batch);
-        }
-        
-        for(Land land : lands)
-        {
-            land.render(batch);
-        }
+        goalReached = false;
+        goal.reached = false;
         
-        for(Orb orb : orbs)
-        {
-            orb.render(batch);
-        }
+        pickups.reset();
         
-        goal.render(batch);
-        player.render(batch);
-        bats.render(batch);
+        player.reset(playerSpawn.x, playerSpawn.y);
+        bats.updatePlayerY(playerSpawn.y);
+        bats.reset();
+    }
+    
+    /**
+     * Collects the objects with moving bodies: the player and every bat,
+     * flying or pooled. The set never changes while the level lives.
+     * 
+     * @param out array the objects are added to
+     */
+    public void getMovingObjects(Array<AbstractGameObject> out)
+    {
+        out.add(player);
+        bats.getMovingObjects(out);
+    }
+    
+    /**
+     * Submit level objects to the render queue. Each object type draws in its
+     * own layer, so the submission order here does not affect layering. Static
+     * pickups are only submitted when they lie in the visible area. Land is
+     * drawn separately, see LandLayer.
+     * 
+     * @param queue
+     * @param view the area of the world seen by the camera
+     */
+    public void render(RenderQueue queue, Rectangle view)
+    {
+        pickups.render(queue, view);
+        goal.render(queue);
+        player.render(queue);
+        bats.render(queue);
+    }
+    
+    /**
+     * Computes a checksum of the state of the level. Two runs that compute
+     * different checksums after the same tick have diverged.
+     * 
+     * @return the checksum
+     */
+    public int checksum()
+    {
+        int hash = 17;
+        hash = 31 * hash + Float.floatToIntBits(player.position.x);
+        hash = 31 * hash + Float.floatToIntBits(player.position.y);
+        hash = 31 * hash + pickups.getRemaining(Pickups.PICKUP_TYPE.CANDYCORN);
+        hash = 31 * hash + pickups.getRemaining(Pickups.PICKUP_TYPE.ORB);
+        hash = 31 * hash + (goalReached ? 1 : 0);
+        return bats.checksum(hash);
+    }
+    
+    /**
+     * Frees the GPU resources held by level objects
+     */
+    public void dispose()
+    {
+        player.dispose();
     }
 }
-
@@ -0,0 +1,295 @@
+package com.jordanml.game.level;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Uniform grid of fixed-size cells that buckets objects by the area they cover.
+ * Objects are added once and the grid is then built into flat arrays, so a
+ * query only touches the cells overlapping the queried area, no matter how
+ * many objects the level holds.
+ *
+ * @param <T> type of the stored objects
+ */
+public class SpatialGrid<T>
+{
+    /**
+     * cellSize - width and height of a cell in meters
+     * originX  - world x of the left edge of the grid
+     * originY  - world y of the bottom edge of the grid
+     * columns  - number of cells along x
+     * rows     - number of cells along y
+     */
+    private final float cellSize;
+    private final float originX;
+    private final float originY;
+    private final int columns;
+    private final int rows;
+
+    /**
+     * items     - all objects in the grid
+     * cellRange - per object: first column, last column, first row, last row
+     * cellStart - index into cellItems where each cell's objects start
+     * cellItems - object indices, grouped by cell
+     */
+    private final Array<T> items;
+    private int[] cellRange;
+    private int[] cellStart;
+    private int[] cellItems;
+
+    // Marks objects already returned by the current query
+    private int[] stamps;
+    private int stamp;
+
+    // Objects taken out of the grid after it was built
+    private boolean[] removed;
+    private int removedCount;
+
+    // Indices found by the current query
+    private final IntArray hits = new IntArray();
+
+    /**
+     * Creates an empty grid covering the given area
+     *
+     * @param cellSize width and height of a cell in meters
+     * @param x        left edge of the covered area
+     * @param y        bottom edge of the covered area
+     * @param width    width of the covered area
+     * @param height   height of the covered area
+     */
+    public SpatialGrid(float cellSize, float x, float y, float width, float height)
+    {
+        this.cellSize = cellSize;
+        this.originX = x;
+        this.originY = y;
+        columns = Math.max(1, MathUtils.ceil(width / cellSize));
+        rows = Math.max(1, MathUtils.ceil(height / cellSize));
+
+        items = new Array<T>();
+        cellRange = new int[64];
+    }
+
+    /**
+     * Adds an object covering the given area. Objects outside the grid are
+     * clamped into the border cells. Call build() once all objects are added.
+     *
+     * @param item   the object to add
+     * @param extent the area covered by the object
+     * @return index of the object, in the order objects were added
+     */
+    public int add(T item, Rectangle extent)
+    {
+        int index = items.size;
+        items.add(item);
+
+        if(cellRange.length < items.size * 4)
+        {
+            int[] newRange = new int[cellRange.length * 2];
+            System.arraycopy(cellRange, 0, newRange, 0, cellRange.length);
+            cellRange = newRange;
+        }
+
+        cellRange[index * 4] = column(extent.x);
+        cellRange[index * 4 + 1] = column(extent.x + extent.width);
+        cellRange[index * 4 + 2] = row(extent.y);
+        cellRange[index * 4 + 3] = row(extent.y + extent.height);
+        return index;
+    }
+
+    /**
+     * @param item an object in the grid
+     * @return the index add() returned for it, or -1
+     */
+    public int indexOf(T item)
+    {
+        return items.indexOf(item, true);
+    }
+
+    /**
+     * @param index index returned by add()
+     * @return the object
+     */
+    public T get(int index)
+    {
+        return items.get(index);
+    }
+
+    /**
+     * Sorts the added objects into their cells
+     */
+    public void build()
+    {
+        int cells = columns * rows;
+        cellStart = new int[cells + 1];
+
+        // Count objects per cell, cellStart[c + 1] holds the count of cell c
+        int total = 0;
+        for(int i = 0; i < items.size; i++)
+        {
+            for(int row = cellRange[i * 4 + 2]; row <= cellRange[i * 4 + 3]; row++)
+            {
+                for(int col = cellRange[i * 4]; col <= cellRange[i * 4 + 1]; col++)
+                {
+                    cellStart[row * columns + col + 1]++;
+                    total++;
+                }
+            }
+        }
+
+        // Turn counts into start offsets
+        for(int c = 0; c < cells; c++)
+            cellStart[c + 1] += cellStart[c];
+
+        // Fill cells, using a copy of the offsets as write cursors
+        cellItems = new int[total];
+        int[] cursor = new int[cells];
+        System.arraycopy(cellStart, 0, cursor, 0, cells);
+
+        for(int i = 0; i < items.size; i++)
+        {
+            for(int row = cellRange[i * 4 + 2]; row <= cellRange[i * 4 + 3]; row++)
+            {
+                for(int col = cellRange[i * 4]; col <= cellRange[i * 4 + 1]; col++)
+                {
+                    cellItems[cursor[row * columns + col]++] = i;
+                }
+            }
+        }
+
+        stamps = new int[items.size];
+        stamp = 0;
+        removed = new boolean[items.size];
+        removedCount = 0;
+    }
+
+    /**
+     * Takes an object out of a built grid, later queries no longer report it.
+     * The cells keep their layout, so this is cheap but does not shrink them.
+     *
+     * @param item the object to remove
+     * @return true if the object was in the grid
+     */
+    public boolean remove(T item)
+    {
+        return remove(indexOf(item));
+    }
+
+    /**
+     * Takes the object with the given index out of a built grid
+     *
+     * @param index index returned by add(), or -1
+     * @return true if the object was in the grid
+     */
+    public boolean remove(int index)
+    {
+        if(index == -1 || removed[index])
+            return false;
+
+        removed[index] = true;
+        removedCount++;
+        return true;
+    }
+
+    /**
+     * Puts an object taken out by remove() back into the grid, later queries
+     * report it again
+     *
+     * @param index index returned by add(), or -1
+     * @return true if the object was removed before
+     */
+    public boolean restore(int index)
+    {
+        if(index == -1 || !removed[index])
+            return false;
+
+        removed[index] = false;
+        removedCount--;
+        return true;
+    }
+
+    /**
+     * Collects every object whose cells overlap the given area. Each object is
+     * reported once, even if it spans several cells.
+     *
+     * @param area the area to search
+     * @param out  array receiving the objects, it is cleared first
+     * @return out
+     */
+    public Array<T> query(Rectangle area, Array<T> out)
+    {
+        out.clear();
+        queryIndices(area, hits);
+
+        for(int i = 0; i < hits.size; i++)
+            out.add(items.get(hits.get(i)));
+
+        return out;
+    }
+
+    /**
+     * Like query(), but reports the indices returned by add() instead of the
+     * objects, for callers that keep their data in arrays of their own
+     *
+     * @param area the area to search
+     * @param out  array receiving the indices, it is cleared first
+     * @return out
+     */
+    public IntArray queryIndices(Rectangle area, IntArray out)
+    {
+        out.clear();
+
+        if(++stamp == 0)
+        {
+            // Stamp wrapped around, forget all marks
+            for(int i = 0; i < stamps.length; i++)
+                stamps[i] = 0;
+            stamp = 1;
+        }
+
+        int firstCol = column(area.x);
+        int lastCol = column(area.x + area.width);
+        int firstRow = row(area.y);
+        int lastRow = row(area.y + area.height);
+
+        for(int row = firstRow; row <= lastRow; row++)
+        {
+            for(int col = firstCol; col <= lastCol; col++)
+            {
+                int cell = row * columns + col;
+
+                for(int i = cellStart[cell]; i < cellStart[cell + 1]; i++)
+                {
+                    int index = cellItems[i];
+
+                    if(stamps[index] != stamp && !removed[index])
+                    {
+                        stamps[index] = stamp;
+                        out.add(index);
+                    }
+                }
+            }
+        }
+
+        return out;
+    }
+
+    /**
+     * @return number of objects in the grid, not counting removed ones
+     */
+    public int size()
+    {
+        return items.size - removedCount;
+    }
+
+    private int column(float x)
+    {
+        return MathUtils.clamp((int) Math.floor((x - originX) / cellSize), 0, columns - 1);
+    }
+
+    private int row(float y)
+    {
+        return MathUtils.clamp((int) Math.floor((y - originY) / cellSize), 0, rows - 1);
+    }
+}
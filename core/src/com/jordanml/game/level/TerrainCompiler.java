@@ -0,0 +1,231 @@
+package com.jordanml.game.level;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntIntMap;
+
+/**
+ * Traces the outline of the solid cells of a grid into closed loops, suitable
+ * for Box2D ChainShapes. A whole level of tiles becomes a handful of loops, so
+ * the terrain needs far fewer bodies and contact pairs than one box per tile
+ * or per run, and there are no seams between boxes for bodies to catch on.
+ *
+ * Columns all have the same width, rows can have different heights. Every
+ * boundary edge of the grid is visited once, so compiling is linear in the
+ * number of cells.
+ */
+public class TerrainCompiler
+{
+    /**
+     * columns - number of cells along x
+     * rows    - number of cells along y
+     * originX - world x of the left edge of the grid
+     * width   - width of a column in meters
+     * rowY    - world y of the bottom edge of each row, plus the top edge of the last row
+     * solid   - per cell, row by row: whether the cell is solid
+     */
+    private final int columns;
+    private final int rows;
+    private final float originX;
+    private final float width;
+    private final float[] rowY;
+    private final boolean[] solid;
+
+    /**
+     * Boundary edges, each going from one grid vertex to the next with the
+     * solid cell on its left. A vertex is numbered row * (columns + 1) + column.
+     *
+     * edgeStart - start vertex of each edge
+     * edgeEnd   - end vertex of each edge
+     * nextOut   - next edge starting at the same vertex, or -1
+     * firstOut  - first edge starting at a vertex
+     */
+    private IntArray edgeStart;
+    private IntArray edgeEnd;
+    private IntArray nextOut;
+    private IntIntMap firstOut;
+
+    /**
+     * Creates a grid without solid cells
+     *
+     * @param columns number of cells along x
+     * @param originX world x of the left edge of the grid
+     * @param width   width of a column in meters
+     * @param rowY    world y of the row edges, from the bottom edge of the
+     *                first row to the top edge of the last one, increasing
+     */
+    public TerrainCompiler(int columns, float originX, float width, float[] rowY)
+    {
+        this.columns = columns;
+        this.rows = rowY.length - 1;
+        this.originX = originX;
+        this.width = width;
+        this.rowY = rowY;
+        solid = new boolean[columns * rows];
+    }
+
+    /**
+     * Marks a block of cells as solid. Cells outside the grid are ignored.
+     *
+     * @param column first column of the block
+     * @param row    first row of the block
+     * @param count  number of columns in the block
+     * @param height number of rows in the block
+     */
+    public void fill(int column, int row, int count, int height)
+    {
+        int lastColumn = Math.min(columns, column + count);
+        int lastRow = Math.min(rows, row + height);
+
+        for(int r = Math.max(0, row); r < lastRow; r++)
+        {
+            for(int c = Math.max(0, column); c < lastColumn; c++)
+                solid[r * columns + c] = true;
+        }
+    }
+
+    /**
+     * Traces the outlines of the solid cells. Outer outlines run counter
+     * clockwise, outlines of holes clockwise. Vertices in the middle of a
+     * straight line are left out.
+     *
+     * @return the loops, each as x and y pairs without repeating the first vertex
+     */
+    public Array<float[]> compile()
+    {
+        collectEdges();
+
+        Array<float[]> loops = new Array<float[]>();
+        boolean[] visited = new boolean[edgeStart.size];
+        FloatArray vertices = new FloatArray();
+
+        for(int first = 0; first < edgeStart.size; first++)
+        {
+            if(visited[first])
+                continue;
+
+            vertices.clear();
+            int edge = first;
+
+            do
+            {
+                visited[edge] = true;
+                int next = nextEdge(edge);
+
+                // Keep only the vertices where the outline turns
+                if(direction(edge) != direction(next))
+                    addVertex(vertices, edgeEnd.get(edge));
+
+                edge = next;
+            }
+            while(edge != first);
+
+            loops.add(vertices.toArray());
+        }
+
+        edgeStart = edgeEnd = nextOut = null;
+        firstOut = null;
+        return loops;
+    }
+
+    /**
+     * Collects the sides of solid cells that border on empty cells or on the
+     * edge of the grid, oriented so the solid cell is on the left
+     */
+    private void collectEdges()
+    {
+        edgeStart = new IntArray();
+        edgeEnd = new IntArray();
+        nextOut = new IntArray();
+        firstOut = new IntIntMap();
+
+        for(int r = 0; r < rows; r++)
+        {
+            for(int c = 0; c < columns; c++)
+            {
+                if(!isSolid(c, r))
+                    continue;
+
+                if(!isSolid(c, r - 1))
+                    addEdge(vertex(c, r), vertex(c + 1, r));
+                if(!isSolid(c + 1, r))
+                    addEdge(vertex(c + 1, r), vertex(c + 1, r + 1));
+                if(!isSolid(c, r + 1))
+                    addEdge(vertex(c + 1, r + 1), vertex(c, r + 1));
+                if(!isSolid(c - 1, r))
+                    addEdge(vertex(c, r + 1), vertex(c, r));
+            }
+        }
+    }
+
+    private void addEdge(int start, int end)
+    {
+        int index = edgeStart.size;
+        edgeStart.add(start);
+        edgeEnd.add(end);
+        nextOut.add(firstOut.get(start, -1));
+        firstOut.put(start, index);
+    }
+
+    /**
+     * Finds the edge following the given one. Where two solid cells only touch
+     * at a corner, two edges leave the same vertex; taking the left turn keeps
+     * following the same cell, so the two cells get separate outlines instead
+     * of one that crosses itself.
+     */
+    private int nextEdge(int edge)
+    {
+        int candidate = firstOut.get(edgeEnd.get(edge), -1);
+        int other = nextOut.get(candidate);
+
+        if(other == -1)
+            return candidate;
+
+        return isLeftTurn(edge, candidate) ? candidate : other;
+    }
+
+    private boolean isLeftTurn(int from, int to)
+    {
+        int d1 = direction(from);
+        int d2 = direction(to);
+        // Directions are numbered counter clockwise, see direction()
+        return d2 == (d1 + 1) % 4;
+    }
+
+    /**
+     * @return 0 for +x, 1 for +y, 2 for -x, 3 for -y
+     */
+    private int direction(int edge)
+    {
+        int delta = edgeEnd.get(edge) - edgeStart.get(edge);
+
+        if(delta == 1)
+            return 0;
+        if(delta == -1)
+            return 2;
+
+        return delta > 0 ? 1 : 3;
+    }
+
+    private void addVertex(FloatArray vertices, int vertex)
+    {
+        int c = vertex % (columns + 1);
+        int r = vertex / (columns + 1);
+        vertices.add(originX + c * width);
+        vertices.add(rowY[r]);
+    }
+
+    private int vertex(int column, int row)
+    {
+        return row * (columns + 1) + column;
+    }
+
+    private boolean isSolid(int column, int row)
+    {
+        if(column < 0 || row < 0 || column >= columns || row >= rows)
+            return false;
+
+        return solid[row * columns + column];
+    }
+}
@@ -1,12 +1,13 @@
 package com.jordanml.game.objects;
 
 import com.badlogic.gdx.graphics.g2d.Animation;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.physics.box2d.Body;
+
+import com.jordanml.game.physics.PhysicsBody;
+import com.jordanml.game.render.RenderQueue;
 
 public abstract class AbstractGameObject
 {
@@ -16,14 +17,14 @@ public abstract class AbstractGameObject
      * origin    - positon of the objects origin
      * scale     - scale of the object
      * rotation  - angle at which the object is currently oriented
-     * body      - object's Box2D body
+     * body      - object's physics body
      */
     public Vector2 position;
     public Vector2 dimension;
     public Vector2 origin;
     public Vector2 scale;
     public float rotation;
-    public Body body;
+    public PhysicsBody body;
     
     // objects current speed in m/s
     public Vector2 velocity;
@@ -80,11 +81,23 @@ public abstract class AbstractGameObject
     }
     
     /**
-     * Abstract method for rendering the object.
+     * Abstract method for rendering the object. Objects submit their sprites to
+     * the given queue instead of drawing them directly.
      * 
-     * @param deltaTime time passed since the previous frame
+     * @param queue the RenderQueue collecting this frame's sprites
+     */
+    public abstract void render(RenderQueue queue);
+    
+    /**
+     * Gets the area of the game world the object is drawn in
+     * 
+     * @param out rectangle receiving the area
+     * @return out
      */
-    public abstract void render(SpriteBatch batch);
+    public Rectangle getExtent(Rectangle out)
+    {
+        return out.set(position.x, position.y, dimension.x, dimension.y);
+    }
     
     /**
      * Sets this object's current animation to the given animation
@@ -1,35 +1,62 @@
 package com.jordanml.game.objects;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.g2d.Animation;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
-import com.badlogic.gdx.math.MathUtils;
-import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.physics.box2d.Body;
-import com.badlogic.gdx.physics.box2d.BodyDef;
-import com.badlogic.gdx.physics.box2d.FixtureDef;
-import com.badlogic.gdx.physics.box2d.PolygonShape;
-import com.badlogic.gdx.physics.box2d.World;
-import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.math.RandomXS128;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+import com.badlogic.gdx.utils.Pool.Poolable;
 import com.jordanml.game.assets.Assets;
+import com.jordanml.game.level.ActivationManager;
 import com.jordanml.game.level.Level;
+import com.jordanml.game.physics.BoxDef;
+import com.jordanml.game.physics.PhysicsBackend;
+import com.jordanml.game.render.RenderQueue;
+import com.jordanml.game.update.UpdateScheduler;
+import com.jordanml.game.util.CollisionBits;
+import com.jordanml.game.util.Constants;
 
-public class Bats extends AbstractGameObject
+/**
+ * The bats flying through the level from right to left. Bats come from a
+ * fixed-size pool whose bodies are all created with the level: a bat that
+ * leaves the level goes back to the pool, and new bats are taken from it at
+ * the times picked by the spawn scheduler. Spawning only moves an existing
+ * body, so raising the number of bats costs no allocations or body churn
+ * while playing.
+ */
+public class Bats extends AbstractGameObject implements UpdateScheduler.Task
 {
     private static final String TAG = Bats.class.getName();
+    
+    /**
+     * length     - length of the level the bats fly through
+     * active     - bats currently flying
+     * pool       - bats waiting to be spawned, each with a disabled body
+     * all        - every bat, flying or pooled
+     * capacity   - number of bats, flying or pooled
+     * spawnTimer - time until the scheduler spawns the next bat
+     * activation - switches bat bodies on and off, may be null
+     * random     - the level's random numbers, so that replays repeat
+     */
     private float length;
-    private Array<Bat> bats;
-    private World world;
+    private Array<Bat> active;
+    private Pool<Bat> pool;
+    private Array<Bat> all;
+    private int capacity;
+    private float spawnTimer;
+    private ActivationManager activation;
+    private RandomXS128 random;
+    private PhysicsBackend physics;
     private float playerY;
     
     /**
      * Inner class
      */
-    private class Bat extends AbstractGameObject
+    private class Bat extends AbstractGameObject implements Poolable
     {
         private Animation<TextureRegion> animNormal;
+        // horizontal speed in m/s
+        private float speed;
         
         public Bat()
         {
@@ -46,152 +73,362 @@ public class Bats extends AbstractGameObject
         }
         
         /**
-         * Initializes the physics box2d properties for the Bat and adds
-         * it to the given World
-         * @param world the box2d World to add the Bat to
+         * Initializes the physics properties for the Bat and adds
+         * it to the given backend
+         * @param physics the backend to add the Bat to
          */
-        public void initPhysics(World world)
+        public void initPhysics(PhysicsBackend physics)
         {
-            // speed
-            Vector2 speed = new Vector2();
-            speed.x += 2.0f; //base speed
-            // random additional speed
-            speed.x += MathUtils.random(0.0f, 0.75f);
-            speed.x = -speed.x;
+            speed = randomSpeed();
             
-            // Create new body for Bat
-            BodyDef bodyDef = new BodyDef();
-            // Land is static
-            bodyDef.type = BodyType.KinematicBody;
-            bodyDef.position.set(this.position);
-            // Create new body using body definition
-            Body body = world.createBody(bodyDef);
-            this.body = body;
-            PolygonShape polygonShape = new PolygonShape();
+            BoxDef boxDef = new BoxDef();
+            boxDef.type = BoxDef.BOX_TYPE.KINEMATIC;
+            boxDef.position.set(this.position);
             origin.x = this.bounds.width / 2.0f + 0.15f;
             origin.y = this.bounds.height / 2.0f + 0.06f;
-            polygonShape.setAsBox(this.bounds.width / 2.0f, this.bounds.height / 2.0f, origin, 0);
-            FixtureDef fixtureDef = new FixtureDef();
-            fixtureDef.shape = polygonShape;
-            fixtureDef.isSensor=true;
-            body.createFixture(fixtureDef);
-            body.setUserData(this);
-            polygonShape.dispose();
-            body.setLinearVelocity(speed);
+            boxDef.width = this.bounds.width;
+            boxDef.height = this.bounds.height;
+            boxDef.center.set(origin);
+            boxDef.categoryBits = CollisionBits.BAT;
+            boxDef.maskBits = CollisionBits.MASK_BAT;
+            boxDef.sensor = true;
+            body = physics.createBox(boxDef);
+            body.setLinearVelocity(speed, 0);
+        }
+        
+        /**
+         * Moves the Bat to a new position and speed, reusing its body
+         * 
+         * @param x     new x position
+         * @param y     new y position
+         * @param speed new horizontal speed
+         */
+        public void respawn(float x, float y, float speed)
+        {
+            this.speed = speed;
+            position.set(x, y);
+            body.setTransform(x, y, 0);
+            body.setLinearVelocity(speed, 0);
+        }
+        
+        /**
+         * Called when the Bat goes back to the pool. The body stays in the
+         * world, switched off.
+         */
+        @Override
+        public void reset()
+        {
+            body.setLinearVelocity(0, 0);
+            body.setActive(false);
         }
         
         @Override
-        public void render(SpriteBatch batch)
+        public void render(RenderQueue queue)
         {
             // TODO Auto-generated method stub
             TextureRegion reg = null;
             
             reg = animation.getKeyFrame(stateTime);
             
-            batch.draw(reg.getTexture(), position.x + origin.x, position.y + origin.y, origin.x, origin.y, dimension.x,
-                    dimension.y, scale.x, scale.y, rotation, reg.getRegionX(), reg.getRegionY(), reg.getRegionWidth(),
-                    reg.getRegionHeight(), true, false);
+            queue.submit(RenderQueue.LAYER_BATS, reg, position.x + origin.x, position.y + origin.y, origin.x, origin.y, dimension.x,
+                    dimension.y, scale.x, scale.y, rotation, true, false);
             
         }
         
         @Override
         public void update(float deltaTime)
         {
-            super.update(deltaTime);
+            if(body.isActive())
+            {
+                super.update(deltaTime);
+            }
+            else
+            {
+                // Body is switched off far from the player, keep flying without it
+                stateTime += deltaTime;
+                position.x += speed * deltaTime;
+            }
         }
     }
     
     public Bats(float length, Level level)
     {
         this.length = length;
+        random = level.random;
         //init();
     }
     
     /**
-     * Initialize Bats properties and spawn first bats
+     * Initialize Bats properties, fill the pool and spawn the first bats.
+     * Requires initPhysics to be called first.
      */
     public void init()
     {        
         dimension.set(0.25f, 0.25f);
-
-        int distFac = 5;
-        int numBats = (int) (length / distFac);
-        
-        bats = new Array<Bat>(2 * numBats);
+        capacity = Constants.BAT_POOL_SIZE;
+        active = new Array<Bat>(false, capacity);
         
-        for (int i = 0; i < numBats; i++)
+        pool = new Pool<Bat>(capacity, capacity)
         {
-            Bat bat = spawnBat();
-            bat.position.x = i * distFac;
-            bats.add(bat);
-        }
+            @Override
+            protected Bat newObject()
+            {
+                return createBat();
+            }
+        };
+        
+        // Create every body now, so none are created while playing
+        for(int i = 0; i < capacity; i++)
+            active.add(pool.obtain());
+        all = new Array<Bat>(active);
+        pool.freeAll(active);
+        active.clear();
+        
+        spawnInitial();
     }
     
     /**
-     * Creates and initializes a new Bat object
+     * Creates a Bat and its body
      * 
-     * @return Returns a new Bat object
+     * @return a new Bat, its body is switched off by the pool
      */
-    private Bat spawnBat()
+    private Bat createBat()
     {
         Bat bat = new Bat();
         bat.dimension.set(dimension);
-        // position
-        Vector2 pos = new Vector2();
-        pos.x = length + 10; // position after end of level
-        pos.y += 1.75; // base position
-        pos.y += MathUtils.random(playerY - 2.0f, playerY + 2.0f) + (MathUtils.randomBoolean() ? 1 : -1); // random additional position
-        bat.position.set(pos);
-        bat.initPhysics(world);
-        Gdx.app.debug(TAG, "Spawn bat at " + pos.x + " " + pos.y);
+        bat.position.set(spawnX(), spawnY());
+        bat.initPhysics(physics);
         return bat;
     }
     
+    /**
+     * Spreads bats along their flight path, so the level does not start empty.
+     * Bats are placed as far apart as the scheduler spawns them.
+     */
+    private void spawnInitial()
+    {
+        float spacing = Constants.BAT_SPAWN_INTERVAL * -randomSpeed();
+        
+        for(float x = spawnX() - spacing; x > 0; x -= spacing)
+            spawnBat(x);
+        
+        spawnTimer = nextSpawnDelay();
+    }
+    
+    /**
+     * Takes a Bat from the pool and sends it off from the given position
+     * 
+     * @param x start position of the bat
+     */
+    private void spawnBat(float x)
+    {
+        if(active.size == capacity)
+            return;
+        
+        Bat bat = pool.obtain();
+        bat.body.setActive(true);
+        bat.respawn(x, spawnY(), randomSpeed());
+        active.add(bat);
+        
+        if(activation != null)
+            activation.addMoving(bat);
+    }
+    
+    /**
+     * Returns a Bat that left the level to the pool
+     * 
+     * @param index index of the bat in the active bats
+     */
+    private void retireBat(int index)
+    {
+        Bat bat = active.removeIndex(index);
+        
+        if(activation != null)
+            activation.removeMoving(bat);
+        
+        pool.free(bat);
+    }
+    
+    /**
+     * Advances the spawn scheduler, spawning the bats that are due
+     * 
+     * @param deltaTime time passed since the previous frame
+     */
+    private void updateSpawns(float deltaTime)
+    {
+        spawnTimer -= deltaTime;
+        
+        while(spawnTimer <= 0)
+        {
+            spawnBat(spawnX());
+            spawnTimer += nextSpawnDelay();
+        }
+    }
+    
+    /**
+     * @return random time until the next bat spawns, around BAT_SPAWN_INTERVAL
+     */
+    private float nextSpawnDelay()
+    {
+        return Constants.BAT_SPAWN_INTERVAL * (0.5f + random.nextFloat());
+    }
+    
+    /**
+     * @return x position bats spawn at, after the end of the level
+     */
+    private float spawnX()
+    {
+        return length + 10;
+    }
+    
+    /**
+     * @return random y position for a new bat, around the player's height
+     */
+    private float spawnY()
+    {
+        float y = 1.75f; // base position
+        y += playerY - 2.0f + random.nextFloat() * 4.0f + (random.nextBoolean() ? 1 : -1); // random additional position
+        return y;
+    }
+    
+    /**
+     * @return random speed for a new bat, flying to the left
+     */
+    private float randomSpeed()
+    {
+        float speed = 2.0f; // base speed
+        speed += random.nextFloat() * 0.75f; // random additional speed
+        return -speed;
+    }
+    
+    /**
+     * Adds the state of the flying bats to a checksum
+     * 
+     * @param hash checksum so far
+     * @return the new checksum
+     */
+    public int checksum(int hash)
+    {
+        hash = 31 * hash + active.size;
+        
+        for(Bat bat : active)
+        {
+            hash = 31 * hash + Float.floatToIntBits(bat.position.x);
+            hash = 31 * hash + Float.floatToIntBits(bat.position.y);
+        }
+        
+        return hash;
+    }
+    
+    /**
+     * Hands the flying bats to the activation manager, which switches their
+     * bodies off while they are far from the player. Bats spawned later are
+     * added, and retired bats removed, as they come and go.
+     * 
+     * @param manager the level's activation manager
+     */
+    public void registerMoving(ActivationManager manager)
+    {
+        activation = manager;
+        
+        for(Bat bat : active)
+            manager.addMoving(bat);
+    }
+    
+    /**
+     * Adds every bat, flying or pooled, to the given array
+     * 
+     * @param out array the bats are added to
+     */
+    public void getMovingObjects(Array<AbstractGameObject> out)
+    {
+        out.addAll(all);
+    }
+    
+    /**
+     * Returns every bat to the pool and spawns the first bats again. Used when
+     * the level restarts, reuses the existing bats and bodies.
+     */
+    public void reset()
+    {
+        for(int i = active.size - 1; i >= 0; i--)
+            retireBat(i);
+        
+        spawnInitial();
+    }
+    
+    /**
+     * @return number of bats currently flying
+     */
+    public int getActiveCount()
+    {
+        return active.size;
+    }
+    
     /**
      * Initializes
-     * @param world
+     * @param physics
      */
-    public void initPhysics(World world)
+    public void initPhysics(PhysicsBackend physics)
     {
-        this.world = world;
+        this.physics = physics;
         
         /*
         for(Bat bat : bats)
         {
             if(!bat.physicsInitialized)
-                bat.initPhysics(world);
+                bat.initPhysics(physics);
         }*/
     }
     
     @Override
-    public void render(SpriteBatch batch)
+    public void render(RenderQueue queue)
     {
-        for(Bat bat : bats)
-            bat.render(batch);
+        for(Bat bat : active)
+            bat.render(queue);
     }
     
     /**
-     * Updates all bats in the level. If a bat has moved beyond the
-     * end of the level (on the left) then it is destroyed. 
+     * Updates all flying bats, then retires and spawns bats, see
+     * retireAndSpawn()
      * 
      * @param deltaTime
      */
     @Override
     public void update(float deltaTime)
     {   
-        for(int i = bats.size - 1; i >= 0; i--)
+        update(0, active.size, deltaTime);
+        retireAndSpawn(deltaTime);
+    }
+    
+    /**
+     * Moves and animates the flying bats in the given range. Each bat only
+     * reads its own body, so ranges can be updated on different threads.
+     */
+    @Override
+    public void update(int from, int to, float deltaTime)
+    {
+        for(int i = from; i < to; i++)
+            active.get(i).update(deltaTime);
+    }
+    
+    /**
+     * A bat that has moved beyond the end of the level (on the left) goes back
+     * to the pool, and new bats are spawned at the other end when the
+     * scheduler says so. Changes bodies and draws random numbers, so it must
+     * run on the thread that owns the physics backend.
+     * 
+     * @param deltaTime time passed since the previous frame
+     */
+    public void retireAndSpawn(float deltaTime)
+    {
+        for(int i = active.size - 1; i >= 0; i--)
         {
-            Bat bat = bats.get(i);
-            bat.update(deltaTime);
-            
-            if(bat.position.x < -10)
-            {
-                // bat moved outside of world
-                // destroy and spawn new bat at end of level
-                bats.removeIndex(i);
-                bats.add(spawnBat());
-            }
+            if(active.get(i).position.x < -10)
+                retireBat(i);
         }
+        
+        updateSpawns(deltaTime);
     }
     
     /**
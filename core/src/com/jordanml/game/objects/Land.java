@@ -1,15 +1,10 @@
 package com.jordanml.game.objects;
 
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
-import com.badlogic.gdx.physics.box2d.Body;
-import com.badlogic.gdx.physics.box2d.BodyDef;
-import com.badlogic.gdx.physics.box2d.FixtureDef;
-import com.badlogic.gdx.physics.box2d.PolygonShape;
-import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
-import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.math.Rectangle;
 
 import com.jordanml.game.assets.Assets;
+import com.jordanml.game.render.RenderQueue;
 
 public class Land extends AbstractGameObject
 {
@@ -64,39 +59,25 @@ public class Land extends AbstractGameObject
     }
     
     /**
-     * Initializes the box2d physics for this Land object
-     * @param world
+     * Gets the area of the Land that collides with the player. Floating land
+     * is thinner than it is drawn. The level traces these areas into the
+     * terrain body, see Terrain.
+     * 
+     * @param out rectangle receiving the area
+     * @return out
      */
-    public void initPhysics(World world)
-    {  
+    public Rectangle getSolidArea(Rectangle out)
+    {
         float offsetHeight = 0.0f;
-        float hRatio = 1.0f;
+        float height = dimension.y;
         
-        // Set offsetHeight and hRatio to decrease bounding box size for floating land
         if(landType == LAND_TYPE.FLOAT)
         {
             offsetHeight = 0.25f;
-            hRatio = 0.5f / 0.75f;
+            height = 0.5f;
         }
         
-        bounds.set(0, 0, dimension.x * (length + 2), dimension.y * hRatio);
-        // Create new body for Land
-        BodyDef bodyDef = new BodyDef();
-        // Land is static
-        bodyDef.type = BodyType.KinematicBody;
-        bodyDef.position.set(this.position);
-        // Create new body using body definition
-        Body body = world.createBody(bodyDef);
-        this.body = body;
-        PolygonShape polygonShape = new PolygonShape();
-        origin.x = this.bounds.width / 2.0f - 1.0f;
-        origin.y = this.bounds.height / 2.0f + offsetHeight;
-        polygonShape.setAsBox(this.bounds.width / 2.0f, this.bounds.height / 2.0f, origin, 0);
-        FixtureDef fixtureDef = new FixtureDef();
-        fixtureDef.shape = polygonShape;
-        body.createFixture(fixtureDef);
-        body.setUserData(this);
-        polygonShape.dispose();
+        return out.set(position.x - dimension.x, position.y + offsetHeight, dimension.x * (length + 2), height);
     }
     
     /**
@@ -112,6 +93,16 @@ public class Land extends AbstractGameObject
         bounds.set(0, 0, dimension.x * length, dimension.y);
     }
 
+    /**
+     * Returns the number of middle pieces in the Land
+     * 
+     * @return the length of the Land, not counting its edges
+     */
+    public int getLength()
+    {
+        return length;
+    }
+
     /**
      * Increases length by the given amount
      * 
@@ -122,6 +113,16 @@ public class Land extends AbstractGameObject
         setLength(length + amount);
     }
     
+    /**
+     * The Land is drawn from one edge piece left of its position to one edge
+     * piece right of its last middle piece
+     */
+    @Override
+    public Rectangle getExtent(Rectangle out)
+    {
+        return out.set(position.x - dimension.x, position.y, dimension.x * (length + 2), dimension.y);
+    }
+    
     @Override
     public void update(float deltaTime)
     {
@@ -132,7 +133,7 @@ public class Land extends AbstractGameObject
      * Renders the Land with edges added on the left and right ends
      */
     @Override
-    public void render(SpriteBatch batch)
+    public void render(RenderQueue queue)
     {
         
         if(landType == LAND_TYPE.EDGE_NORM || landType == LAND_TYPE.EDGE_FLOAT)
@@ -146,9 +147,8 @@ public class Land extends AbstractGameObject
         // Draw left edge
         reg = regEdge;
         relX -= dimension.x;
-        batch.draw(reg.getTexture(), position.x + relX, position.y + relY, origin.x, origin.y, dimension.x,
-                dimension.y, scale.x, scale.y, rotation, reg.getRegionX(), reg.getRegionY(), reg.getRegionWidth(),
-                reg.getRegionHeight(), false, false);
+        queue.submit(RenderQueue.LAYER_LAND, reg, position.x + relX, position.y + relY, origin.x, origin.y, dimension.x,
+                dimension.y, scale.x, scale.y, rotation, false, false);
 
         // Draw middle
         relX = 0;
@@ -162,17 +162,15 @@ public class Land extends AbstractGameObject
             else
                 flip = false;
             
-            batch.draw(reg.getTexture(), position.x + relX, position.y + relY, origin.x, origin.y, dimension.x + 0.01f,
-                    dimension.y, scale.x, scale.y, rotation, reg.getRegionX(), reg.getRegionY(), reg.getRegionWidth(),
-                    reg.getRegionHeight(), flip, false);
+            queue.submit(RenderQueue.LAYER_LAND, reg, position.x + relX, position.y + relY, origin.x, origin.y, dimension.x + 0.01f,
+                    dimension.y, scale.x, scale.y, rotation, flip, false);
             relX += dimension.x;
         }
 
         // Draw right edge
         reg = regEdge;
-        batch.draw(reg.getTexture(), position.x + relX, position.y + relY, origin.x + dimension.x / 8, origin.y,
-                dimension.x, dimension.y, scale.x, scale.y, rotation, reg.getRegionX(), reg.getRegionY(),
-                reg.getRegionWidth(), reg.getRegionHeight(), true, false);
+        queue.submit(RenderQueue.LAYER_LAND, reg, position.x + relX, position.y + relY, origin.x + dimension.x / 8, origin.y,
+                dimension.x, dimension.y, scale.x, scale.y, rotation, true, false);
         
     }
 
@@ -0,0 +1,299 @@
+package com.jordanml.game.objects;
+
+import com.badlogic.gdx.graphics.g2d.Animation;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.IntArray;
+
+import com.jordanml.game.assets.Assets;
+import com.jordanml.game.level.SpatialGrid;
+import com.jordanml.game.render.RenderQueue;
+import com.jordanml.game.update.UpdateScheduler;
+import com.jordanml.game.util.Constants;
+
+/**
+ * All candycorns and orbs of a level. Instead of one object with its own
+ * vectors per pickup, the pickups are stored as columns: pickup i has type
+ * type[i], lies at x[i], y[i], and so on. Updating walks the animation column
+ * of every pickup in one flat loop; drawing only walks the pickups near the
+ * camera, found through a spatial grid. A level can hold many thousands of
+ * pickups without as many objects to chase.
+ *
+ * Pickups have no Box2D bodies. The same grid finds the pickups the player
+ * touches, see findOverlapping(), so pickups never enter the broadphase or
+ * the contact listener, and their number does not grow the physics world.
+ *
+ * Pickups are never moved or reordered, an index names the same pickup for
+ * the whole level.
+ */
+public class Pickups implements UpdateScheduler.Task
+{
+    public static final String TAG = Pickups.class.getName();
+
+    // Kinds of pickups, with the size and layer of each
+    public enum PICKUP_TYPE
+    {
+        CANDYCORN (0.5f, 0.5f, RenderQueue.LAYER_CANDYCORN),
+        ORB       (0.5f, 0.5f, RenderQueue.LAYER_ORB);
+
+        public final float width;
+        public final float height;
+        public final int layer;
+
+        private PICKUP_TYPE(float width, float height, int layer)
+        {
+            this.width = width;
+            this.height = height;
+            this.layer = layer;
+        }
+    }
+
+    private static final PICKUP_TYPE[] TYPES = PICKUP_TYPE.values();
+
+    /**
+     * type      - ordinal of each pickup's PICKUP_TYPE
+     * x, y      - bottom left corner of each pickup
+     * stateTime - where each pickup is in its animation
+     * collected - whether each pickup was collected
+     * size      - number of pickups, collected or not
+     * remaining - pickups left to collect, per type
+     */
+    private byte[] type;
+    private float[] x;
+    private float[] y;
+    private float[] stateTime;
+    private boolean[] collected;
+    private int size;
+    private final int[] remaining;
+
+    /**
+     * grid    - uncollected pickups bucketed by the area they cover
+     * visible - scratch array for the pickups render() finds, used by nothing else
+     */
+    private SpatialGrid<PICKUP_TYPE> grid;
+    private final IntArray visible;
+
+    private final TextureRegion regCandycorn;
+    private final Animation<TextureRegion> animOrb;
+
+    public Pickups()
+    {
+        resize(64);
+        remaining = new int[TYPES.length];
+        visible = new IntArray(64);
+        regCandycorn = Assets.instance.candy.candycorn;
+        animOrb = Assets.instance.orb.animNormal;
+    }
+
+    /**
+     * Adds a pickup. Call build() once all pickups are added.
+     *
+     * @param pickupType the kind of pickup
+     * @param x          left edge of the pickup
+     * @param y          bottom edge of the pickup
+     * @return index of the pickup
+     */
+    public int add(PICKUP_TYPE pickupType, float x, float y)
+    {
+        if(size == type.length)
+            resize(size * 2);
+
+        type[size] = (byte) pickupType.ordinal();
+        this.x[size] = x;
+        this.y[size] = y;
+        remaining[pickupType.ordinal()]++;
+        return size++;
+    }
+
+    private void resize(int capacity)
+    {
+        byte[] newType = new byte[capacity];
+        float[] newX = new float[capacity];
+        float[] newY = new float[capacity];
+        float[] newStateTime = new float[capacity];
+        boolean[] newCollected = new boolean[capacity];
+
+        if(type != null)
+        {
+            System.arraycopy(type, 0, newType, 0, size);
+            System.arraycopy(x, 0, newX, 0, size);
+            System.arraycopy(y, 0, newY, 0, size);
+            System.arraycopy(stateTime, 0, newStateTime, 0, size);
+            System.arraycopy(collected, 0, newCollected, 0, size);
+        }
+
+        type = newType;
+        x = newX;
+        y = newY;
+        stateTime = newStateTime;
+        collected = newCollected;
+    }
+
+    /**
+     * Buckets the pickups into a spatial grid, so that only the ones near the
+     * camera are updated and rendered, and only the ones near the player are
+     * tested for collection
+     *
+     * @param width  level width in meters
+     * @param height level height in meters
+     */
+    public void build(int width, int height)
+    {
+        // Pickups are placed between y = 1 and y = height
+        grid = new SpatialGrid<PICKUP_TYPE>(Constants.GRID_CELL_SIZE, 0, 0, width + 1, height + 1);
+        Rectangle extent = new Rectangle();
+
+        for(int i = 0; i < size; i++)
+            grid.add(TYPES[type[i]], getExtent(i, extent));
+
+        grid.build();
+    }
+
+    /**
+     * Finds the uncollected pickups overlapping the given area. Only the grid
+     * cells under the area are searched.
+     *
+     * @param area the area, e.g. the player's hitbox
+     * @param out  array receiving the pickups' indices, it is cleared first
+     * @return out
+     */
+    public IntArray findOverlapping(Rectangle area, IntArray out)
+    {
+        grid.queryIndices(area, out);
+
+        // The grid reports everything in the cells, keep the real overlaps
+        int kept = 0;
+
+        for(int n = 0; n < out.size; n++)
+        {
+            int i = out.get(n);
+            PICKUP_TYPE pickupType = TYPES[type[i]];
+
+            if(x[i] < area.x + area.width && x[i] + pickupType.width > area.x
+                    && y[i] < area.y + area.height && y[i] + pickupType.height > area.y)
+                out.set(kept++, i);
+        }
+
+        out.size = kept;
+        return out;
+    }
+
+    /**
+     * Marks a pickup collected, it is no longer drawn or found until reset().
+     *
+     * @param index index of the pickup
+     * @return true if the pickup was not collected before
+     */
+    public boolean collect(int index)
+    {
+        if(collected[index])
+            return false;
+
+        collected[index] = true;
+        remaining[type[index]]--;
+        grid.remove(index);
+        return true;
+    }
+
+    /**
+     * Makes every collected pickup available again, it is drawn and found
+     * like before it was collected.
+     */
+    public void reset()
+    {
+        for(int i = 0; i < size; i++)
+        {
+            if(!collected[i])
+                continue;
+
+            collected[i] = false;
+            remaining[type[i]]++;
+            grid.restore(i);
+        }
+    }
+
+    /**
+     * Advances the animations of all pickups. The update does not depend on
+     * what was drawn, so it is the same with or without a renderer.
+     *
+     * @param deltaTime time passed since the previous frame
+     */
+    public void update(float deltaTime)
+    {
+        update(0, size, deltaTime);
+    }
+    
+    /**
+     * Advances the animations of the given range of pickups, see size().
+     * Collected pickups are advanced as well, skipping them would cost more
+     * than it saves. Ranges touch separate pickups, so they can be updated on
+     * different threads.
+     */
+    @Override
+    public void update(int from, int to, float deltaTime)
+    {
+        for(int i = from; i < to; i++)
+            stateTime[i] += deltaTime;
+    }
+
+    /**
+     * Submits the pickups in the visible area to the render queue
+     *
+     * @param queue the RenderQueue collecting this frame's sprites
+     * @param view  the area of the world seen by the camera
+     */
+    public void render(RenderQueue queue, Rectangle view)
+    {
+        grid.queryIndices(view, visible);
+
+        for(int n = 0; n < visible.size; n++)
+        {
+            int i = visible.get(n);
+            PICKUP_TYPE pickupType = TYPES[type[i]];
+            TextureRegion reg;
+
+            if(pickupType == PICKUP_TYPE.ORB)
+                reg = animOrb.getKeyFrame(stateTime[i], true);
+            else
+                reg = regCandycorn;
+
+            queue.submit(pickupType.layer, reg, x[i], y[i], pickupType.width / 2.0f, pickupType.height / 2.0f,
+                    pickupType.width, pickupType.height, 1, 1, 0, false, false);
+        }
+    }
+
+    /**
+     * Gets the area a pickup covers
+     *
+     * @param index index of the pickup
+     * @param out   rectangle receiving the area
+     * @return out
+     */
+    public Rectangle getExtent(int index, Rectangle out)
+    {
+        PICKUP_TYPE pickupType = TYPES[type[index]];
+        return out.set(x[index], y[index], pickupType.width, pickupType.height);
+    }
+
+    public PICKUP_TYPE getType(int index)
+    {
+        return TYPES[type[index]];
+    }
+
+    /**
+     * @return number of pickups, collected or not
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @param pickupType the kind of pickup
+     * @return number of pickups of that kind left to collect
+     */
+    public int getRemaining(PICKUP_TYPE pickupType)
+    {
+        return remaining[pickupType.ordinal()];
+    }
+}
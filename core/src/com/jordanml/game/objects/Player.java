@@ -1,21 +1,19 @@
 package com.jordanml.game.objects;
 
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.Input.Keys;
 import com.badlogic.gdx.graphics.g2d.Animation;
-import com.badlogic.gdx.graphics.g2d.ParticleEffect;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.physics.box2d.Body;
-import com.badlogic.gdx.physics.box2d.BodyDef;
-import com.badlogic.gdx.physics.box2d.FixtureDef;
-import com.badlogic.gdx.physics.box2d.PolygonShape;
-import com.badlogic.gdx.physics.box2d.World;
-import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
 import com.jordanml.game.assets.Assets;
+import com.jordanml.game.physics.BoxDef;
+import com.jordanml.game.physics.PhysicsBackend;
+import com.jordanml.game.render.GpuParticleEffect;
+import com.jordanml.game.render.RenderQueue;
 import com.jordanml.game.util.AudioManager;
+import com.jordanml.game.util.CollisionBits;
 import com.jordanml.game.util.Constants;
+import com.jordanml.game.util.PlayerInput;
 
 public class Player extends AbstractGameObject
 {
@@ -56,7 +54,7 @@ public class Player extends AbstractGameObject
     private boolean hasOrb;
     private boolean goalReached;
     private float orbTimeout;
-    private ParticleEffect dustParticles;
+    private GpuParticleEffect dustParticles;
     
     public Player()
     {
@@ -72,8 +70,7 @@ public class Player extends AbstractGameObject
         animIdle = Assets.instance.player.animIdle;
         animRun = Assets.instance.player.animRun;
         animJump = Assets.instance.player.animJump;
-        dustParticles = new ParticleEffect();
-        dustParticles.load(Gdx.files.internal("particles/dust.pfx"), Gdx.files.internal("particles"));
+        dustParticles = new GpuParticleEffect(Gdx.files.internal("particles/dust.pfx"), Gdx.files.internal("particles"));
         
         // Set initial animation
         setAnimation(animIdle);
@@ -98,29 +95,59 @@ public class Player extends AbstractGameObject
     }
     
     /**
-     * Initializes the box2d physics for the Player and adds its body to the given world.
+     * Puts the Player back at the given position, standing still, and clears
+     * any collected power-up. The body is moved rather than recreated.
      * 
-     * @param world
+     * @param x spawn x position
+     * @param y spawn y position
      */
-    public void initPhysics(World world)
+    public void reset(float x, float y)
     {
-        // Create new body for Player
-        BodyDef bodyDef = new BodyDef();
-        // Land is static
-        bodyDef.type = BodyType.DynamicBody;
-        bodyDef.position.set(this.position);
-        // Create new body using body definition
-        Body body = world.createBody(bodyDef);
-        this.body = body;
-        PolygonShape polygonShape = new PolygonShape();
+        position.set(x, y);
+        rotation = 0;
+        body.setTransform(x, y, 0);
+        body.stop();
+        
+        hasOrb = false;
+        goalReached = false;
+        orbTimeout = 0;
+        viewDirection = VIEW_DIRECTION.RIGHT;
+        moveState = MOVE_STATE.STOPPED;
+        jumpState = JUMP_STATE.GROUNDED;
+        setAnimation(animIdle);
+        dustParticles.allowCompletion();
+    }
+    
+    /**
+     * Initializes the physics for the Player and adds its body to the given backend.
+     * 
+     * @param physics
+     */
+    public void initPhysics(PhysicsBackend physics)
+    {
+        BoxDef boxDef = new BoxDef();
+        boxDef.type = BoxDef.BOX_TYPE.DYNAMIC;
+        boxDef.position.set(this.position);
         origin.x = this.bounds.width / 2.0f + 0.15f;
         origin.y = this.bounds.height / 2.0f + 0.06f;
-        polygonShape.setAsBox(this.bounds.width / 2.0f, this.bounds.height / 2.0f, origin, 0);
-        FixtureDef fixtureDef = new FixtureDef();
-        fixtureDef.shape = polygonShape;
-        body.createFixture(fixtureDef);
-        body.setUserData(this);
-        polygonShape.dispose();
+        boxDef.width = this.bounds.width;
+        boxDef.height = this.bounds.height;
+        boxDef.center.set(origin);
+        boxDef.categoryBits = CollisionBits.PLAYER;
+        boxDef.maskBits = CollisionBits.MASK_PLAYER;
+        body = physics.createBox(boxDef);
+    }
+    
+    /**
+     * Gets the axis-aligned box around the player's body after the last
+     * physics step. If the body tipped over, the box covers the rotated shape.
+     * 
+     * @param out rectangle receiving the box
+     * @return out
+     */
+    public Rectangle getHitbox(Rectangle out)
+    {
+        return body.getBounds(out);
     }
     
     /**
@@ -185,15 +212,15 @@ public class Player extends AbstractGameObject
     /**
      * Renders the Player using the given SpriteBatch
      * 
-     * batch - The SpriteBatch used to render the Player
+     * queue - The RenderQueue the Player is submitted to
      */
     @Override
-    public void render(SpriteBatch batch)
+    public void render(RenderQueue queue)
     {
         TextureRegion reg = null;
                 
         // Render dust particles
-        dustParticles.draw(batch);
+        queue.submit(RenderQueue.LAYER_PARTICLES, dustParticles);
         
         boolean flip = false;
         
@@ -204,21 +231,22 @@ public class Player extends AbstractGameObject
         
         reg = animation.getKeyFrame(stateTime, true);
         
-        batch.draw(reg.getTexture(), position.x, position.y, origin.x, origin.y, dimension.x, dimension.y,
-                scale.x, scale.y, rotation, reg.getRegionX(), reg.getRegionY(),
-                reg.getRegionWidth(), reg.getRegionHeight(), flip, false);
+        queue.submit(RenderQueue.LAYER_PLAYER, reg, position.x, position.y, origin.x, origin.y, dimension.x, dimension.y,
+                scale.x, scale.y, rotation, flip, false);
     }
     
     /**
-     * Handles keyboard input for the Player
+     * Sets the Player's movement from the controls of the current tick
+     * 
+     * @param input the player's buttons
      */
-    public void handleInput()
+    public void handleInput(PlayerInput input)
     {
-        if(Gdx.input.isKeyPressed(Keys.RIGHT))
+        if(input.isDown(PlayerInput.RIGHT))
         {
             moveState = MOVE_STATE.MOVE_RIGHT;
         }
-        else if(Gdx.input.isKeyPressed(Keys.LEFT))
+        else if(input.isDown(PlayerInput.LEFT))
         {
             moveState = MOVE_STATE.MOVE_LEFT;
         }
@@ -227,7 +255,7 @@ public class Player extends AbstractGameObject
             moveState = MOVE_STATE.STOPPED;
         }
         
-        if(Gdx.input.isKeyJustPressed(Keys.SPACE) && body.getLinearVelocity().y == 0)
+        if(input.isDown(PlayerInput.JUMP) && body.isGrounded())
         {
             jumpState = JUMP_STATE.JUMP_START;
         }
@@ -243,11 +271,11 @@ public class Player extends AbstractGameObject
         switch(moveState)
         {
             case MOVE_RIGHT:
-                if(body.getLinearVelocity().y == 0)
+                if(body.isGrounded())
                     vel.x = 5.0f;
                 break;
             case MOVE_LEFT:
-                if(body.getLinearVelocity().y == 0)
+                if(body.isGrounded())
                     vel.x = -5.0f;
                 break;
             case STOPPED:
@@ -270,7 +298,7 @@ public class Player extends AbstractGameObject
                     vel.y = 5.0f;
                 break;
             case JUMPING:
-                if(vel.y == 0.0f)
+                if(body.isGrounded())
                     jumpState = JUMP_STATE.GROUNDED;
             case GROUNDED:
                 break;
@@ -295,4 +323,12 @@ public class Player extends AbstractGameObject
     {
         goalReached = true;
     }
+    
+    /**
+     * Frees the GPU resources of the dust particles
+     */
+    public void dispose()
+    {
+        dustParticles.dispose();
+    }
 }
@@ -0,0 +1,66 @@
+package com.jordanml.game.objects;
+
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.ChainShape;
+import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.utils.Array;
+
+import com.jordanml.game.util.CollisionBits;
+
+/**
+ * Collision geometry of all Land in a level: one static body with a chain
+ * loop fixture per outline traced by the TerrainCompiler. Land objects are
+ * only drawn, they have no bodies of their own.
+ */
+public class Terrain
+{
+    /**
+     * loops - outlines of the solid land, as x and y pairs
+     * body  - the static body holding all loops
+     */
+    private final Array<float[]> loops;
+    public Body body;
+
+    public Terrain(Array<float[]> loops)
+    {
+        this.loops = loops;
+    }
+
+    /**
+     * Creates the terrain body in the given world
+     *
+     * @param world the box2d world to add the body to
+     */
+    public void initPhysics(World world)
+    {
+        BodyDef bodyDef = new BodyDef();
+        bodyDef.type = BodyType.StaticBody;
+        body = world.createBody(bodyDef);
+
+        FixtureDef fixtureDef = new FixtureDef();
+        fixtureDef.filter.categoryBits = CollisionBits.LAND;
+        fixtureDef.filter.maskBits = CollisionBits.MASK_LAND;
+
+        for(float[] loop : loops)
+        {
+            ChainShape chainShape = new ChainShape();
+            chainShape.createLoop(loop);
+            fixtureDef.shape = chainShape;
+            body.createFixture(fixtureDef);
+            chainShape.dispose();
+        }
+
+        body.setUserData(this);
+    }
+
+    /**
+     * @return number of chain loops, one fixture each
+     */
+    public int getLoopCount()
+    {
+        return loops.size;
+    }
+}
@@ -0,0 +1,94 @@
+package com.jordanml.game.physics;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+
+import com.jordanml.game.level.Level;
+import com.jordanml.game.util.Constants;
+
+/**
+ * Simulates the level with Box2D. Land is one static body of chain loops, see
+ * Terrain; boxes are bodies with a single polygon fixture.
+ */
+public class Box2DBackend implements PhysicsBackend
+{
+    /**
+     * VELOCITY_ITERATIONS - velocity constraint solver iterations per step
+     * POSITION_ITERATIONS - position constraint solver iterations per step
+     */
+    private static final int VELOCITY_ITERATIONS = 8;
+    private static final int POSITION_ITERATIONS = 3;
+
+    private final World world;
+
+    public Box2DBackend()
+    {
+        world = new World(new Vector2(0, Constants.GRAVITY), true);
+    }
+
+    @Override
+    public void createTerrain(Level level)
+    {
+        level.terrain.initPhysics(world);
+    }
+
+    @Override
+    public PhysicsBody createBox(BoxDef def)
+    {
+        BodyDef bodyDef = new BodyDef();
+        bodyDef.type = def.type == BoxDef.BOX_TYPE.DYNAMIC ? BodyType.DynamicBody : BodyType.KinematicBody;
+        bodyDef.position.set(def.position);
+        Body body = world.createBody(bodyDef);
+
+        PolygonShape polygonShape = new PolygonShape();
+        polygonShape.setAsBox(def.width / 2.0f, def.height / 2.0f, def.center, 0);
+        FixtureDef fixtureDef = new FixtureDef();
+        fixtureDef.shape = polygonShape;
+        fixtureDef.filter.categoryBits = def.categoryBits;
+        fixtureDef.filter.maskBits = def.maskBits;
+        fixtureDef.isSensor = def.sensor;
+        body.createFixture(fixtureDef);
+        polygonShape.dispose();
+
+        Box2DBody box = new Box2DBody(body, def);
+        body.setUserData(box);
+        return box;
+    }
+
+    @Override
+    public void step(float timeStep)
+    {
+        world.step(timeStep, VELOCITY_ITERATIONS, POSITION_ITERATIONS);
+    }
+
+    @Override
+    public int getBodyCount()
+    {
+        return world.getBodyCount();
+    }
+
+    /**
+     * @return the Box2D world, e.g. for Box2DDebugRenderer
+     */
+    public World getWorld()
+    {
+        return world;
+    }
+
+    @Override
+    public BACKEND_TYPE getType()
+    {
+        return BACKEND_TYPE.BOX2D;
+    }
+
+    @Override
+    public void dispose()
+    {
+        world.dispose();
+    }
+}
@@ -0,0 +1,123 @@
+package com.jordanml.game.physics;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+
+/**
+ * A PhysicsBody backed by a Box2D body with one box fixture
+ */
+class Box2DBody implements PhysicsBody
+{
+    /**
+     * body     - the Box2D body
+     * halfSize - half the width and height of the box
+     * center   - center of the box, relative to the body's position
+     * velocity - copy of the body's velocity, changing it does not change the body
+     * corner   - scratch point for getBounds
+     */
+    private final Body body;
+    private final Vector2 halfSize;
+    private final Vector2 center;
+    private final Vector2 velocity = new Vector2();
+    private final Vector2 corner = new Vector2();
+
+    Box2DBody(Body body, BoxDef def)
+    {
+        this.body = body;
+        halfSize = new Vector2(def.width / 2.0f, def.height / 2.0f);
+        center = new Vector2(def.center);
+    }
+
+    @Override
+    public Vector2 getPosition()
+    {
+        return body.getPosition();
+    }
+
+    @Override
+    public float getAngle()
+    {
+        return body.getAngle();
+    }
+
+    @Override
+    public Vector2 getLinearVelocity()
+    {
+        return velocity.set(body.getLinearVelocity());
+    }
+
+    @Override
+    public void setLinearVelocity(float x, float y)
+    {
+        body.setLinearVelocity(x, y);
+    }
+
+    @Override
+    public void setLinearVelocity(Vector2 velocity)
+    {
+        body.setLinearVelocity(velocity);
+    }
+
+    @Override
+    public void setTransform(float x, float y, float angle)
+    {
+        body.setTransform(x, y, angle);
+    }
+
+    @Override
+    public void stop()
+    {
+        body.setLinearVelocity(0, 0);
+        body.setAngularVelocity(0);
+        body.setAwake(true);
+    }
+
+    @Override
+    public boolean isActive()
+    {
+        return body.isActive();
+    }
+
+    @Override
+    public void setActive(boolean active)
+    {
+        body.setActive(active);
+    }
+
+    /**
+     * Box2D reports no ground contact directly; a body whose vertical speed
+     * is exactly zero is taken to stand on something. This is also true at a
+     * ceiling, and for an instant at the top of a jump.
+     */
+    @Override
+    public boolean isGrounded()
+    {
+        return body.getLinearVelocity().y == 0;
+    }
+
+    /**
+     * Covers the rotated box if the body tipped over
+     */
+    @Override
+    public Rectangle getBounds(Rectangle out)
+    {
+        float minX = Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+
+        for(int i = 0; i < 4; i++)
+        {
+            float x = center.x + (i % 2 == 0 ? -halfSize.x : halfSize.x);
+            float y = center.y + (i < 2 ? -halfSize.y : halfSize.y);
+            Vector2 point = body.getWorldPoint(corner.set(x, y));
+            minX = Math.min(minX, point.x);
+            minY = Math.min(minY, point.y);
+            maxX = Math.max(maxX, point.x);
+            maxY = Math.max(maxY, point.y);
+        }
+
+        return out.set(minX, minY, maxX - minX, maxY - minY);
+    }
+}
@@ -0,0 +1,38 @@
+package com.jordanml.game.physics;
+
+import com.badlogic.gdx.math.Vector2;
+
+/**
+ * Describes a box-shaped body for PhysicsBackend.createBox(). Like Box2D's
+ * BodyDef, a definition can be changed and reused for several bodies.
+ */
+public class BoxDef
+{
+    // How the body moves
+    public enum BOX_TYPE
+    {
+        // Falls and collides with land
+        DYNAMIC,
+        // Moves at its velocity through everything
+        KINEMATIC;
+    }
+
+    /**
+     * type         - how the body moves
+     * position     - initial position of the body
+     * width        - width of the box
+     * height       - height of the box
+     * center       - center of the box, relative to the body's position
+     * categoryBits - collision category, see CollisionBits
+     * maskBits     - categories the body collides with, see CollisionBits
+     * sensor       - whether the body only detects overlaps instead of colliding
+     */
+    public BOX_TYPE type = BOX_TYPE.DYNAMIC;
+    public final Vector2 position = new Vector2();
+    public float width = 1;
+    public float height = 1;
+    public final Vector2 center = new Vector2();
+    public short categoryBits = 1;
+    public short maskBits = -1;
+    public boolean sensor;
+}
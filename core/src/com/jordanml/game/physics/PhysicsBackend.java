@@ -0,0 +1,71 @@
+package com.jordanml.game.physics;
+
+import com.badlogic.gdx.utils.Disposable;
+
+import com.jordanml.game.level.Level;
+
+/**
+ * Simulates the bodies of one level. Box2DBackend runs the full Box2D
+ * engine; TileBackend is a small pure Java engine that moves boxes against
+ * the level's land grid, for levels that need nothing more.
+ */
+public interface PhysicsBackend extends Disposable
+{
+    // Available backends, stored in replays so that they play back on the one they were recorded with
+    public enum BACKEND_TYPE
+    {
+        BOX2D
+        {
+            @Override
+            public PhysicsBackend create()
+            {
+                return new Box2DBackend();
+            }
+        },
+        TILES
+        {
+            @Override
+            public PhysicsBackend create()
+            {
+                return new TileBackend();
+            }
+        };
+
+        /**
+         * @return a new, empty backend of this type
+         */
+        public abstract PhysicsBackend create();
+    }
+
+    /**
+     * Adds the collision geometry of the level's land
+     *
+     * @param level the level
+     */
+    public void createTerrain(Level level);
+
+    /**
+     * Creates a box-shaped body
+     *
+     * @param def describes the body, it can be reused afterwards
+     * @return the new body
+     */
+    public PhysicsBody createBox(BoxDef def);
+
+    /**
+     * Advances the simulation
+     *
+     * @param timeStep simulated time in seconds
+     */
+    public void step(float timeStep);
+
+    /**
+     * @return number of bodies, active or not
+     */
+    public int getBodyCount();
+
+    /**
+     * @return which backend this is
+     */
+    public BACKEND_TYPE getType();
+}
@@ -0,0 +1,69 @@
+package com.jordanml.game.physics;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+
+/**
+ * A box simulated by a PhysicsBackend. Game objects move their bodies only
+ * through this interface, so the same object works with every backend.
+ */
+public interface PhysicsBody
+{
+    /**
+     * @return position of the body, the vector may be reused by later calls
+     */
+    public Vector2 getPosition();
+
+    /**
+     * @return angle of the body in radians
+     */
+    public float getAngle();
+
+    /**
+     * @return velocity of the body in m/s, the vector may be reused by later calls
+     */
+    public Vector2 getLinearVelocity();
+
+    public void setLinearVelocity(float x, float y);
+
+    public void setLinearVelocity(Vector2 velocity);
+
+    /**
+     * Moves the body without simulating the way there
+     *
+     * @param x     new x position
+     * @param y     new y position
+     * @param angle new angle in radians
+     */
+    public void setTransform(float x, float y, float angle);
+
+    /**
+     * Stops all linear and angular motion
+     */
+    public void stop();
+
+    /**
+     * @return true if the body takes part in the simulation
+     */
+    public boolean isActive();
+
+    /**
+     * Switches the body off, so that steps skip it, or back on
+     *
+     * @param active true to switch the body on
+     */
+    public void setActive(boolean active);
+
+    /**
+     * @return true if the body stands on something after the last step
+     */
+    public boolean isGrounded();
+
+    /**
+     * Gets the axis-aligned box around the body's shape after the last step
+     *
+     * @param out rectangle receiving the box
+     * @return out
+     */
+    public Rectangle getBounds(Rectangle out);
+}
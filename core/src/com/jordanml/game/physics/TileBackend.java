@@ -0,0 +1,264 @@
+package com.jordanml.game.physics;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+
+import com.jordanml.game.level.Level;
+import com.jordanml.game.objects.Land;
+import com.jordanml.game.util.CollisionBits;
+import com.jordanml.game.util.Constants;
+
+/**
+ * Pure Java platformer physics: the level's land is a grid of solid tiles,
+ * and dynamic bodies are boxes that fall and are swept against that grid, one
+ * axis at a time. A move checks every tile between the start and the end, so
+ * fast bodies cannot tunnel through thin land. A body that is stopped while
+ * moving down is grounded until the next step.
+ *
+ * Nothing rotates, there is no friction or restitution, and bodies do not
+ * collide with each other. The player and the bats need nothing more.
+ * Everything runs in Java, so a step makes no JNI calls and allocates nothing.
+ */
+public class TileBackend implements PhysicsBackend
+{
+    /**
+     * TILE_SIZE - width and height of a tile; land edges lie on quarter meters
+     * EPSILON   - tolerance for boxes touching a tile edge
+     */
+    private static final float TILE_SIZE = 0.25f;
+    private static final float EPSILON = 1e-4f;
+
+    /**
+     * solid   - per tile, whether it is land, row by row from the bottom
+     * columns - number of tiles along x
+     * rows    - number of tiles along y
+     * bodies  - all bodies
+     * bounds  - scratch box of the body being moved
+     */
+    private boolean[] solid;
+    private int columns;
+    private int rows;
+    private final Array<TileBody> bodies;
+    private final Rectangle bounds;
+
+    public TileBackend()
+    {
+        solid = new boolean[0];
+        bodies = new Array<TileBody>(false, 16);
+        bounds = new Rectangle();
+    }
+
+    /**
+     * Marks the tiles covered by the solid area of every Land
+     */
+    @Override
+    public void createTerrain(Level level)
+    {
+        // Land is placed between y = 1 and y = height + 1
+        columns = (int) Math.ceil((level.getWidth() + 1) / TILE_SIZE);
+        rows = (int) Math.ceil((level.getHeight() + 2) / TILE_SIZE);
+        solid = new boolean[columns * rows];
+        Rectangle area = new Rectangle();
+
+        for(Land land : level.lands)
+        {
+            land.getSolidArea(area);
+            int lastColumn = column(area.x + area.width - EPSILON);
+            int lastRow = row(area.y + area.height - EPSILON);
+
+            for(int r = row(area.y + EPSILON); r <= lastRow; r++)
+            {
+                for(int c = column(area.x + EPSILON); c <= lastColumn; c++)
+                {
+                    if(c >= 0 && c < columns && r >= 0 && r < rows)
+                        solid[r * columns + c] = true;
+                }
+            }
+        }
+    }
+
+    @Override
+    public PhysicsBody createBox(BoxDef def)
+    {
+        TileBody body = new TileBody(def, CollisionBits.LAND);
+        bodies.add(body);
+        return body;
+    }
+
+    @Override
+    public void step(float timeStep)
+    {
+        for(int i = 0; i < bodies.size; i++)
+        {
+            TileBody body = bodies.get(i);
+
+            if(!body.active)
+                continue;
+
+            if(body.type == BoxDef.BOX_TYPE.KINEMATIC || !body.hitsLand)
+            {
+                if(body.type == BoxDef.BOX_TYPE.DYNAMIC)
+                    body.velocity.y += Constants.GRAVITY * timeStep;
+
+                body.position.mulAdd(body.velocity, timeStep);
+                continue;
+            }
+
+            body.velocity.y += Constants.GRAVITY * timeStep;
+            body.grounded = false;
+            body.getBounds(bounds);
+            moveX(body, body.velocity.x * timeStep);
+            moveY(body, body.velocity.y * timeStep);
+        }
+    }
+
+    /**
+     * Moves a body along x until it hits a solid tile
+     *
+     * @param body the body, bounds holds its box
+     * @param dx   distance to move
+     */
+    private void moveX(TileBody body, float dx)
+    {
+        int firstRow = row(bounds.y + EPSILON);
+        int lastRow = row(bounds.y + bounds.height - EPSILON);
+
+        if(dx > 0)
+        {
+            float right = bounds.x + bounds.width;
+            int last = column(right + dx - EPSILON);
+
+            for(int c = column(right - EPSILON) + 1; c <= last; c++)
+            {
+                if(isSolidColumn(c, firstRow, lastRow))
+                {
+                    dx = Math.max(0, c * TILE_SIZE - right);
+                    body.velocity.x = 0;
+                    break;
+                }
+            }
+        }
+        else if(dx < 0)
+        {
+            int last = column(bounds.x + dx + EPSILON);
+
+            for(int c = column(bounds.x + EPSILON) - 1; c >= last; c--)
+            {
+                if(isSolidColumn(c, firstRow, lastRow))
+                {
+                    dx = Math.min(0, (c + 1) * TILE_SIZE - bounds.x);
+                    body.velocity.x = 0;
+                    break;
+                }
+            }
+        }
+
+        body.position.x += dx;
+        bounds.x += dx;
+    }
+
+    /**
+     * Moves a body along y until it hits a solid tile. Hitting a tile below
+     * grounds the body.
+     *
+     * @param body the body, bounds holds its box
+     * @param dy   distance to move
+     */
+    private void moveY(TileBody body, float dy)
+    {
+        int firstColumn = column(bounds.x + EPSILON);
+        int lastColumn = column(bounds.x + bounds.width - EPSILON);
+
+        if(dy > 0)
+        {
+            float top = bounds.y + bounds.height;
+            int last = row(top + dy - EPSILON);
+
+            for(int r = row(top - EPSILON) + 1; r <= last; r++)
+            {
+                if(isSolidRow(r, firstColumn, lastColumn))
+                {
+                    dy = Math.max(0, r * TILE_SIZE - top);
+                    body.velocity.y = 0;
+                    break;
+                }
+            }
+        }
+        else if(dy < 0)
+        {
+            int last = row(bounds.y + dy + EPSILON);
+
+            for(int r = row(bounds.y + EPSILON) - 1; r >= last; r--)
+            {
+                if(isSolidRow(r, firstColumn, lastColumn))
+                {
+                    dy = Math.min(0, (r + 1) * TILE_SIZE - bounds.y);
+                    body.velocity.y = 0;
+                    body.grounded = true;
+                    break;
+                }
+            }
+        }
+
+        body.position.y += dy;
+        bounds.y += dy;
+    }
+
+    private boolean isSolidColumn(int column, int firstRow, int lastRow)
+    {
+        for(int r = firstRow; r <= lastRow; r++)
+        {
+            if(isSolid(column, r))
+                return true;
+        }
+
+        return false;
+    }
+
+    private boolean isSolidRow(int row, int firstColumn, int lastColumn)
+    {
+        for(int c = firstColumn; c <= lastColumn; c++)
+        {
+            if(isSolid(c, row))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return true if the tile is land; tiles outside the level are empty
+     */
+    private boolean isSolid(int column, int row)
+    {
+        return column >= 0 && column < columns && row >= 0 && row < rows && solid[row * columns + column];
+    }
+
+    private int column(float x)
+    {
+        return (int) Math.floor(x / TILE_SIZE);
+    }
+
+    private int row(float y)
+    {
+        return (int) Math.floor(y / TILE_SIZE);
+    }
+
+    @Override
+    public int getBodyCount()
+    {
+        return bodies.size;
+    }
+
+    @Override
+    public BACKEND_TYPE getType()
+    {
+        return BACKEND_TYPE.TILES;
+    }
+
+    @Override
+    public void dispose()
+    {
+        bodies.clear();
+    }
+}
@@ -0,0 +1,111 @@
+package com.jordanml.game.physics;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+
+/**
+ * A PhysicsBody moved by the TileBackend. The box never rotates.
+ */
+class TileBody implements PhysicsBody
+{
+    /**
+     * type       - how the body moves
+     * position   - position of the body
+     * velocity   - velocity in m/s
+     * angle      - angle in radians, kept but never simulated
+     * width      - width of the box
+     * height     - height of the box
+     * center     - center of the box, relative to the position
+     * hitsLand   - whether the body collides with land
+     * active     - whether steps move the body
+     * grounded   - whether the last step stopped the body falling
+     */
+    final BoxDef.BOX_TYPE type;
+    final Vector2 position;
+    final Vector2 velocity = new Vector2();
+    private final Vector2 velocityOut = new Vector2();
+    float angle;
+    final float width;
+    final float height;
+    final Vector2 center;
+    final boolean hitsLand;
+    boolean active = true;
+    boolean grounded;
+
+    TileBody(BoxDef def, short landBits)
+    {
+        type = def.type;
+        position = new Vector2(def.position);
+        width = def.width;
+        height = def.height;
+        center = new Vector2(def.center);
+        hitsLand = !def.sensor && (def.maskBits & landBits) != 0;
+    }
+
+    @Override
+    public Vector2 getPosition()
+    {
+        return position;
+    }
+
+    @Override
+    public float getAngle()
+    {
+        return angle;
+    }
+
+    @Override
+    public Vector2 getLinearVelocity()
+    {
+        return velocityOut.set(velocity);
+    }
+
+    @Override
+    public void setLinearVelocity(float x, float y)
+    {
+        velocity.set(x, y);
+    }
+
+    @Override
+    public void setLinearVelocity(Vector2 velocity)
+    {
+        this.velocity.set(velocity);
+    }
+
+    @Override
+    public void setTransform(float x, float y, float angle)
+    {
+        position.set(x, y);
+        this.angle = angle;
+    }
+
+    @Override
+    public void stop()
+    {
+        velocity.setZero();
+    }
+
+    @Override
+    public boolean isActive()
+    {
+        return active;
+    }
+
+    @Override
+    public void setActive(boolean active)
+    {
+        this.active = active;
+    }
+
+    @Override
+    public boolean isGrounded()
+    {
+        return grounded;
+    }
+
+    @Override
+    public Rectangle getBounds(Rectangle out)
+    {
+        return out.set(position.x + center.x - width / 2.0f, position.y + center.y - height / 2.0f, width, height);
+    }
+}
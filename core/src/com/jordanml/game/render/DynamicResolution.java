@@ -0,0 +1,324 @@
+package com.jordanml.game.render;
+
+import java.nio.IntBuffer;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.GL30;
+import com.badlogic.gdx.graphics.Pixmap.Format;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * Renders a pass into an off-screen buffer at a fraction of the window
+ * resolution, and upscales it to the window afterwards. The fraction follows
+ * the measured time of the pass: it drops when the pass takes longer than its
+ * budget and recovers once the pass is well below it.
+ *
+ * The pass is timed on the GPU with GL_TIME_ELAPSED queries where the context
+ * supports them. The results are read a few frames later, once available, so
+ * the CPU never waits for the GPU. Without timer queries the frame time is
+ * used instead, against a frame budget.
+ */
+public class DynamicResolution implements Disposable
+{
+    public static final String TAG = DynamicResolution.class.getName();
+
+    // From ARB_timer_query / EXT_disjoint_timer_query, not part of GL30
+    private static final int GL_TIME_ELAPSED = 0x88BF;
+
+    /**
+     * STEP           - scale change per adjustment
+     * COOLDOWN       - frames to wait after an adjustment before the next one
+     * RAISE_RATIO    - fraction of the budget the pass has to stay below to raise the scale
+     * SMOOTHING      - weight of the newest frame in the averaged pass time
+     * QUERY_COUNT    - timer queries in flight, frames a result may lag behind
+     */
+    private static final float STEP = 0.05f;
+    private static final int COOLDOWN = 30;
+    private static final float RAISE_RATIO = 0.7f;
+    private static final float SMOOTHING = 0.1f;
+    private static final int QUERY_COUNT = 4;
+
+    private FrameBuffer frameBuffer;
+    private final Matrix4 screenMatrix;
+
+    /**
+     * minScale   - lowest fraction of the window resolution used
+     * maxScale   - highest fraction of the window resolution used
+     * budget     - time the pass, or the frame without timer queries, may take, in milliseconds
+     * scale      - fraction of the window resolution used for the next frame
+     * passTime   - averaged measured time, in milliseconds
+     * cooldown   - frames left until the scale may change again
+     */
+    private final float minScale;
+    private final float maxScale;
+    private final float budget;
+    private float scale;
+    private float passTime;
+    private int cooldown;
+    private boolean enabled;
+
+    /**
+     * Size of the window and of the area of the buffer drawn this frame
+     */
+    private int width;
+    private int height;
+    private int scaledWidth;
+    private int scaledHeight;
+
+    /**
+     * Ring of timer queries, null without timer query support
+     *
+     * queries    - query ids
+     * pending    - whether a query was issued and its result not read yet
+     * current    - query used by the next pass
+     * result     - receives query results
+     */
+    private int[] queries;
+    private boolean[] pending;
+    private int current;
+    private IntBuffer result;
+
+    /**
+     * @param minScale    lowest fraction of the window resolution, e.g. 0.5
+     * @param maxScale    highest fraction of the window resolution, e.g. 1.0
+     * @param passBudget  GPU time the pass may take, in milliseconds
+     * @param frameBudget time a frame may take without timer queries, in milliseconds
+     */
+    public DynamicResolution(float minScale, float maxScale, float passBudget, float frameBudget)
+    {
+        this.minScale = minScale;
+        this.maxScale = maxScale;
+        scale = maxScale;
+        screenMatrix = new Matrix4();
+
+        GL30 gl30 = Gdx.gl30;
+
+        if(gl30 != null && (Gdx.graphics.supportsExtension("GL_ARB_timer_query")
+                || Gdx.graphics.supportsExtension("GL_EXT_disjoint_timer_query")))
+        {
+            queries = new int[QUERY_COUNT];
+            pending = new boolean[QUERY_COUNT];
+            result = BufferUtils.newIntBuffer(1);
+            gl30.glGenQueries(QUERY_COUNT, queries, 0);
+            budget = passBudget;
+        }
+        else
+        {
+            budget = frameBudget;
+        }
+
+        passTime = budget * RAISE_RATIO;
+        resize(Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+        Gdx.app.debug(TAG, "Timing the " + (queries != null ? "pass with timer queries" : "frame") + ", budget "
+                + budget + " ms");
+    }
+
+    /**
+     * Recreates the buffer for the new window size. The buffer always has the
+     * full window size, lower scales only use part of it.
+     *
+     * @param width  window width in pixels
+     * @param height window height in pixels
+     */
+    public void resize(int width, int height)
+    {
+        if(frameBuffer != null)
+            frameBuffer.dispose();
+
+        this.width = Math.max(1, width);
+        this.height = Math.max(1, height);
+        frameBuffer = new FrameBuffer(Format.RGB888, this.width, this.height, false);
+        frameBuffer.getColorBufferTexture().setFilter(TextureFilter.Linear, TextureFilter.Linear);
+        screenMatrix.setToOrtho2D(0, 0, this.width, this.height);
+    }
+
+    /**
+     * Turns scaling on or off. While off, begin(), end() and draw() do nothing
+     * and the pass draws straight to the window.
+     */
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return true if the pass is rendered at a dynamic resolution
+     */
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * @return fraction of the window resolution used for the last frame
+     */
+    public float getScale()
+    {
+        return scale;
+    }
+
+    /**
+     * @return averaged time of the pass, or of the frame without timer
+     *         queries, in milliseconds
+     */
+    public float getPassTime()
+    {
+        return passTime;
+    }
+
+    /**
+     * Starts rendering the pass into the buffer, at the current scale
+     */
+    public void begin()
+    {
+        if(!enabled)
+            return;
+
+        scaledWidth = Math.max(1, Math.round(width * scale));
+        scaledHeight = Math.max(1, Math.round(height * scale));
+
+        frameBuffer.begin();
+        Gdx.gl.glViewport(0, 0, scaledWidth, scaledHeight);
+        Gdx.gl.glClearColor(0, 0, 0, 1);
+        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+
+        // Only the draw calls between begin() and end() are timed
+        if(queries != null && !pending[current])
+            Gdx.gl30.glBeginQuery(GL_TIME_ELAPSED, queries[current]);
+    }
+
+    /**
+     * Finishes rendering the pass, and adjusts the scale for the next frame
+     */
+    public void end()
+    {
+        if(!enabled)
+            return;
+
+        frameBuffer.end();
+
+        if(queries == null)
+        {
+            addTime(Gdx.graphics.getRawDeltaTime() * 1000.0f);
+            adjustScale();
+            return;
+        }
+
+        // A query still in flight from QUERY_COUNT frames ago leaves this pass untimed
+        if(!pending[current])
+        {
+            Gdx.gl30.glEndQuery(GL_TIME_ELAPSED);
+            pending[current] = true;
+        }
+
+        current = (current + 1) % QUERY_COUNT;
+        readQueries();
+        adjustScale();
+    }
+
+    /**
+     * Adds the results of finished queries to the averaged pass time, oldest
+     * first. Stops at the first query whose result is not available yet.
+     */
+    private void readQueries()
+    {
+        GL30 gl30 = Gdx.gl30;
+
+        for(int i = 0; i < QUERY_COUNT; i++)
+        {
+            int index = (current + i) % QUERY_COUNT;
+
+            if(!pending[index])
+                continue;
+
+            result.clear();
+            gl30.glGetQueryObjectuiv(queries[index], GL30.GL_QUERY_RESULT_AVAILABLE, result);
+
+            if(result.get(0) == 0)
+                return;
+
+            result.clear();
+            gl30.glGetQueryObjectuiv(queries[index], GL30.GL_QUERY_RESULT, result);
+            pending[index] = false;
+            // Unsigned nanoseconds
+            addTime((result.get(0) & 0xFFFFFFFFL) / 1000000.0f);
+        }
+    }
+
+    /**
+     * @param time newest measured time, in milliseconds
+     */
+    private void addTime(float time)
+    {
+        passTime += (time - passTime) * SMOOTHING;
+    }
+
+    /**
+     * Draws the rendered part of the buffer stretched over the whole window
+     *
+     * @param batch the SpriteBatch, must not be drawing
+     */
+    public void draw(SpriteBatch batch)
+    {
+        if(!enabled)
+            return;
+
+        Texture texture = frameBuffer.getColorBufferTexture();
+
+        batch.setProjectionMatrix(screenMatrix);
+        batch.disableBlending();
+        batch.begin();
+        // The buffer is stored bottom-up, the batch expects textures top-down
+        batch.draw(texture, 0, 0, width, height, 0, 0, scaledWidth, scaledHeight, false, true);
+        batch.end();
+        batch.enableBlending();
+    }
+
+    /**
+     * Lowers the scale while the pass is over budget, and raises it while the
+     * pass is well below budget. The gap between the two thresholds and the
+     * cooldown keep the scale from bouncing between two steps.
+     */
+    private void adjustScale()
+    {
+        if(cooldown > 0)
+        {
+            cooldown--;
+            return;
+        }
+
+        float newScale = scale;
+
+        if(passTime > budget)
+            newScale = MathUtils.clamp(scale - STEP, minScale, maxScale);
+        else if(passTime < budget * RAISE_RATIO)
+            newScale = MathUtils.clamp(scale + STEP, minScale, maxScale);
+
+        if(newScale != scale)
+        {
+            scale = newScale;
+            cooldown = COOLDOWN;
+            Gdx.app.debug(TAG, "World resolution scale: " + scale + " (pass " + passTime + " ms)");
+        }
+    }
+
+    /**
+     * Frees the buffer and the timer queries
+     */
+    @Override
+    public void dispose()
+    {
+        frameBuffer.dispose();
+
+        if(queries != null)
+            Gdx.gl30.glDeleteQueries(QUERY_COUNT, queries, 0);
+    }
+}
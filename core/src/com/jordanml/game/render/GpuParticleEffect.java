@@ -0,0 +1,635 @@
+package com.jordanml.game.render;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes.Usage;
+import com.badlogic.gdx.graphics.g2d.ParticleEffect;
+import com.badlogic.gdx.graphics.g2d.ParticleEmitter;
+import com.badlogic.gdx.graphics.g2d.ParticleEmitter.RangedNumericValue;
+import com.badlogic.gdx.graphics.g2d.ParticleEmitter.ScaledNumericValue;
+import com.badlogic.gdx.graphics.g2d.ParticleEmitter.SpawnShape;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * Particle effect simulated on the GPU. Reads the emitters of a libGDX .pfx
+ * file, but instead of moving every particle on the CPU each frame, a particle
+ * is written to a vertex buffer once when it spawns, with its spawn time and
+ * velocity. The vertex shader computes its position, size and transparency
+ * from the current time, and every emitter draws all of its particles in a
+ * single call. The CPU cost is the spawning, not the number of live particles.
+ *
+ * Differences to ParticleEffect: velocity, wind and gravity use the average
+ * of their curves, so particles move in straight lines; size, transparency and
+ * the tint are the same for every particle of an emitter; rotation and aligned
+ * sprites are not supported; ellipse shapes spawn in their bounding box.
+ *
+ * Spawning does not touch OpenGL. Textures, buffers and the shader are created
+ * on the first draw.
+ */
+public class GpuParticleEffect implements RenderQueue.Hook, Disposable
+{
+    public static final String TAG = GpuParticleEffect.class.getName();
+
+    // Samples taken from the size and transparency curves for the shader
+    private static final int CURVE_SAMPLES = 8;
+
+    // A short index buffer can address at most this many particles
+    private static final int MAX_CAPACITY = Short.MAX_VALUE / 4;
+
+    // Time is restarted from zero once no particle is alive past this point (in seconds)
+    private static final float TIME_RESET = 1000.0f;
+
+    /**
+     * Floats per vertex: spawn x, y, spawn time, life, velocity x, y, corner x, y
+     */
+    private static final int VERTEX_SIZE = 8;
+    private static final int PARTICLE_SIZE = VERTEX_SIZE * 4;
+
+    private static final String VERTEX_SHADER =
+            "attribute vec4 a_spawn;\n" +
+            "attribute vec2 a_velocity;\n" +
+            "attribute vec2 a_corner;\n" +
+            "uniform mat4 u_projTrans;\n" +
+            "uniform float u_time;\n" +
+            "uniform float u_size[" + CURVE_SAMPLES + "];\n" +
+            "uniform float u_alpha[" + CURVE_SAMPLES + "];\n" +
+            "varying vec2 v_texCoords;\n" +
+            "varying float v_alpha;\n" +
+            "void main()\n" +
+            "{\n" +
+            "    float age = u_time - a_spawn.z;\n" +
+            "    float t = age / a_spawn.w;\n" +
+            "    float alive = step(0.0, t) * (1.0 - step(1.0, t));\n" +
+            "    float along = clamp(t, 0.0, 1.0) * " + (CURVE_SAMPLES - 1) + ".0;\n" +
+            "    int i = int(min(floor(along), " + (CURVE_SAMPLES - 2) + ".0));\n" +
+            "    float k = along - float(i);\n" +
+            "    float size = mix(u_size[i], u_size[i + 1], k) * alive;\n" +
+            "    v_alpha = mix(u_alpha[i], u_alpha[i + 1], k);\n" +
+            "    v_texCoords = vec2(a_corner.x + 0.5, 0.5 - a_corner.y);\n" +
+            "    vec2 position = a_spawn.xy + a_velocity * age;\n" +
+            "    gl_Position = u_projTrans * vec4(position + a_corner * size, 0.0, 1.0);\n" +
+            "}\n";
+
+    private static final String FRAGMENT_SHADER =
+            "#ifdef GL_ES\n" +
+            "precision mediump float;\n" +
+            "#endif\n" +
+            "uniform sampler2D u_texture;\n" +
+            "uniform vec3 u_tint;\n" +
+            "varying vec2 v_texCoords;\n" +
+            "varying float v_alpha;\n" +
+            "void main()\n" +
+            "{\n" +
+            "    vec4 color = texture2D(u_texture, v_texCoords);\n" +
+            "    gl_FragColor = vec4(color.rgb * u_tint, color.a * v_alpha);\n" +
+            "}\n";
+
+    /**
+     * One emitter of the effect, with its own particle buffer
+     */
+    private static class Emitter implements Disposable
+    {
+        /**
+         * source    - the parsed .pfx emitter, provides the spawn values
+         * imageFile - image drawn for every particle
+         * capacity  - number of particles in the ring buffer
+         * vertices  - CPU copy of the particle buffer
+         * deathTime - time each ring slot's particle dies
+         * next      - ring slot the next particle is written to
+         */
+        final ParticleEmitter source;
+        final FileHandle imageFile;
+        final int capacity;
+        final float[] vertices;
+        final float[] deathTime;
+        int next;
+
+        /**
+         * Ring slots written since the last upload
+         */
+        int dirtyStart;
+        int dirtyCount;
+
+        /**
+         * Values baked from the emitter's curves
+         */
+        final float[] size = new float[CURVE_SAMPLES];
+        final float[] alpha = new float[CURVE_SAMPLES];
+        final float[] tint;
+        final float velocityScale;
+        final float windScale;
+        final float gravityScale;
+
+        /**
+         * durationTimer - time into the current emitter cycle (in seconds)
+         * emission      - fractional particles left over from the last update
+         * emissionLow   - particles per second at the bottom of the emission curve
+         * emissionDiff  - particles per second added at the top of the curve
+         * lastDeath     - time the last live particle dies
+         */
+        float durationTimer;
+        float emission;
+        float emissionLow;
+        float emissionDiff;
+        float lastDeath;
+
+        Texture texture;
+        Mesh mesh;
+
+        Emitter(ParticleEmitter source, FileHandle imageFile)
+        {
+            this.source = source;
+            this.imageFile = imageFile;
+
+            capacity = Math.min(Math.max(1, source.getMaxParticleCount()), MAX_CAPACITY);
+            vertices = new float[capacity * PARTICLE_SIZE];
+            deathTime = new float[capacity];
+
+            bake(source.getXScale(), size);
+            bake(source.getTransparency(), alpha);
+            // getColor() returns a shared array
+            tint = source.getTint().getColor(0).clone();
+            velocityScale = average(source.getVelocity());
+            windScale = average(source.getWind());
+            gravityScale = average(source.getGravity());
+
+            for(int i = 0; i < capacity; i++)
+                writeDead(i);
+        }
+
+        /**
+         * Writes a particle that is never alive to the given ring slot
+         */
+        void writeDead(int slot)
+        {
+            // Spawned before time zero with a life of one second: dead at any time >= 0
+            writeParticle(slot, 0, 0, -1, 1, 0, 0);
+            deathTime[slot] = 0;
+        }
+
+        /**
+         * Writes the four corner vertices of a particle to the given ring slot
+         */
+        void writeParticle(int slot, float x, float y, float spawnTime, float life, float velocityX,
+                float velocityY)
+        {
+            int offset = slot * PARTICLE_SIZE;
+
+            for(int corner = 0; corner < 4; corner++)
+            {
+                vertices[offset++] = x;
+                vertices[offset++] = y;
+                vertices[offset++] = spawnTime;
+                vertices[offset++] = life;
+                vertices[offset++] = velocityX;
+                vertices[offset++] = velocityY;
+                vertices[offset++] = corner == 1 || corner == 2 ? 0.5f : -0.5f;
+                vertices[offset++] = corner >= 2 ? 0.5f : -0.5f;
+            }
+
+            // Grow the dirty range along the ring to include the slot
+            if(dirtyCount == 0)
+            {
+                dirtyStart = slot;
+                dirtyCount = 1;
+            }
+            else
+                dirtyCount = Math.min(capacity, Math.max(dirtyCount, (slot - dirtyStart + capacity) % capacity + 1));
+        }
+
+        /**
+         * Creates the texture and the particle buffer
+         */
+        void createBuffers()
+        {
+            texture = new Texture(imageFile);
+            texture.setFilter(TextureFilter.Linear, TextureFilter.Linear);
+
+            mesh = new Mesh(false, capacity * 4, capacity * 6,
+                    new VertexAttribute(Usage.Generic, 4, "a_spawn"),
+                    new VertexAttribute(Usage.Generic, 2, "a_velocity"),
+                    new VertexAttribute(Usage.Generic, 2, "a_corner"));
+
+            short[] indices = new short[capacity * 6];
+
+            for(int i = 0, vertex = 0; i < indices.length; i += 6, vertex += 4)
+            {
+                indices[i] = (short) vertex;
+                indices[i + 1] = (short) (vertex + 1);
+                indices[i + 2] = (short) (vertex + 2);
+                indices[i + 3] = (short) (vertex + 2);
+                indices[i + 4] = (short) (vertex + 3);
+                indices[i + 5] = (short) vertex;
+            }
+
+            mesh.setIndices(indices);
+            mesh.setVertices(vertices);
+            dirtyCount = 0;
+        }
+
+        /**
+         * Uploads the ring slots written since the last upload
+         */
+        void upload()
+        {
+            if(dirtyCount == 0)
+                return;
+
+            int end = dirtyStart + dirtyCount;
+
+            if(end <= capacity)
+                uploadSlots(dirtyStart, dirtyCount);
+            else
+            {
+                uploadSlots(dirtyStart, capacity - dirtyStart);
+                uploadSlots(0, end - capacity);
+            }
+
+            dirtyCount = 0;
+        }
+
+        private void uploadSlots(int slot, int count)
+        {
+            int offset = slot * PARTICLE_SIZE;
+            mesh.updateVertices(offset, vertices, offset, count * PARTICLE_SIZE);
+        }
+
+        @Override
+        public void dispose()
+        {
+            if(texture != null)
+                texture.dispose();
+
+            if(mesh != null)
+                mesh.dispose();
+
+            texture = null;
+            mesh = null;
+        }
+    }
+
+    private final Array<Emitter> emitters;
+    private ShaderProgram shader;
+
+    /**
+     * time      - effect clock shared with the shader (in seconds)
+     * x, y      - position new particles spawn at
+     * emitting  - whether new particles are spawned
+     */
+    private float time;
+    private float x;
+    private float y;
+    private boolean emitting;
+
+    /**
+     * Reads the emitters of the given effect file. Images are loaded from the
+     * given directory on the first draw.
+     *
+     * @param effectFile the .pfx file
+     * @param imagesDir  directory holding the emitters' images
+     */
+    public GpuParticleEffect(FileHandle effectFile, FileHandle imagesDir)
+    {
+        // Only parses the file, images are not loaded
+        ParticleEffect effect = new ParticleEffect();
+        effect.loadEmitters(effectFile);
+
+        emitters = new Array<Emitter>();
+
+        for(ParticleEmitter source : effect.getEmitters())
+        {
+            if(source.getImagePaths().size == 0)
+                throw new GdxRuntimeException("Emitter " + source.getName() + " in " + effectFile + " has no image");
+
+            String imagePath = source.getImagePaths().first().replace('\\', '/');
+            String imageName = imagePath.substring(imagePath.lastIndexOf('/') + 1);
+            emitters.add(new Emitter(source, imagesDir.child(imageName)));
+        }
+    }
+
+    /**
+     * Sets the position new particles spawn at. Particles already spawned keep
+     * moving from where they spawned.
+     */
+    public void setPosition(float x, float y)
+    {
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Starts spawning particles, if not spawning already
+     */
+    public void start()
+    {
+        if(emitting)
+            return;
+
+        emitting = true;
+
+        for(Emitter emitter : emitters)
+        {
+            emitter.durationTimer = 0;
+            emitter.emission = 0;
+            restart(emitter);
+        }
+    }
+
+    /**
+     * Stops spawning particles. Live particles run until the end of their life.
+     */
+    public void allowCompletion()
+    {
+        emitting = false;
+    }
+
+    /**
+     * @return true if no particle is alive and none are being spawned
+     */
+    public boolean isComplete()
+    {
+        if(emitting)
+            return false;
+
+        for(Emitter emitter : emitters)
+        {
+            if(emitter.lastDeath > time)
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Advances the effect clock and spawns new particles
+     *
+     * @param deltaTime time passed since the last update (in seconds)
+     */
+    public void update(float deltaTime)
+    {
+        if(time > TIME_RESET && isComplete())
+            resetTime();
+
+        time += deltaTime;
+
+        if(!emitting)
+            return;
+
+        for(Emitter emitter : emitters)
+            spawn(emitter, deltaTime);
+    }
+
+    /**
+     * Spawns the particles an emitter emits during the given time
+     */
+    private void spawn(Emitter emitter, float deltaTime)
+    {
+        ParticleEmitter source = emitter.source;
+        float duration = source.getDuration().getLowMin() / 1000.0f;
+
+        emitter.durationTimer += deltaTime;
+
+        if(emitter.durationTimer > duration)
+        {
+            if(!source.isContinuous())
+            {
+                emitting = false;
+                return;
+            }
+
+            emitter.durationTimer = duration > 0 ? emitter.durationTimer % duration : 0;
+            restart(emitter);
+        }
+
+        float percent = duration > 0 ? emitter.durationTimer / duration : 0;
+        float rate = emitter.emissionLow + emitter.emissionDiff * source.getEmission().getScale(percent);
+        emitter.emission += rate * deltaTime;
+
+        int count = (int) emitter.emission;
+        emitter.emission -= count;
+
+        for(int i = 0; i < count; i++)
+        {
+            // Like ParticleEmitter, nothing spawns while the particle limit is reached
+            if(emitter.deathTime[emitter.next] > time)
+                break;
+
+            spawnParticle(emitter, percent);
+            emitter.next = (emitter.next + 1) % emitter.capacity;
+        }
+    }
+
+    /**
+     * Picks new emission values for an emitter cycle
+     */
+    private void restart(Emitter emitter)
+    {
+        ScaledNumericValue emission = emitter.source.getEmission();
+        emitter.emissionLow = emission.newLowValue();
+        emitter.emissionDiff = diff(emitter.emissionLow, emission);
+    }
+
+    /**
+     * Writes one new particle to the emitter's next ring slot
+     */
+    private void spawnParticle(Emitter emitter, float percent)
+    {
+        ParticleEmitter source = emitter.source;
+
+        ScaledNumericValue lifeValue = source.getLife();
+        float life = scaled(lifeValue, lifeValue.getScale(percent)) / 1000.0f;
+
+        if(life <= 0)
+            return;
+
+        // Like ParticleEmitter, wind and gravity are speeds and only apply to moving particles
+        float velocityX = 0;
+        float velocityY = 0;
+
+        if(source.getVelocity().isActive())
+        {
+            float velocity = scaled(source.getVelocity(), emitter.velocityScale);
+            float angle = source.getAngle().isActive() ? scaled(source.getAngle(), source.getAngle().getScale(0)) : 0;
+            velocityX = velocity * MathUtils.cosDeg(angle);
+            velocityY = velocity * MathUtils.sinDeg(angle);
+
+            if(source.getWind().isActive())
+                velocityX += scaled(source.getWind(), emitter.windScale);
+
+            if(source.getGravity().isActive())
+                velocityY += scaled(source.getGravity(), emitter.gravityScale);
+        }
+
+        float spawnX = x + offset(source.getXOffsetValue());
+        float spawnY = y + offset(source.getYOffsetValue());
+
+        if(source.getSpawnShape().getShape() != SpawnShape.point)
+        {
+            float width = scaled(source.getSpawnWidth(), source.getSpawnWidth().getScale(percent));
+            float height = scaled(source.getSpawnHeight(), source.getSpawnHeight().getScale(percent));
+            spawnX += MathUtils.random(width) - width / 2;
+            spawnY += MathUtils.random(height) - height / 2;
+        }
+
+        int slot = emitter.next;
+        emitter.writeParticle(slot, spawnX, spawnY, time, life, velocityX, velocityY);
+        emitter.deathTime[slot] = time + life;
+        emitter.lastDeath = Math.max(emitter.lastDeath, time + life);
+    }
+
+    /**
+     * Restarts the clock at zero so that it keeps its precision. Only called
+     * while no particle is alive, every slot is rewritten as dead.
+     */
+    private void resetTime()
+    {
+        time = 0;
+
+        for(Emitter emitter : emitters)
+        {
+            for(int i = 0; i < emitter.capacity; i++)
+                emitter.writeDead(i);
+
+            emitter.lastDeath = 0;
+        }
+    }
+
+    /**
+     * Draws the live particles of every emitter, one draw call per emitter.
+     * Called by the render queue, pauses the batch while drawing.
+     */
+    @Override
+    public void draw(SpriteBatch batch)
+    {
+        if(isComplete())
+            return;
+
+        if(shader == null)
+            createShader();
+
+        batch.end();
+
+        Gdx.gl.glEnable(GL20.GL_BLEND);
+        shader.begin();
+        shader.setUniformMatrix("u_projTrans", batch.getProjectionMatrix());
+        shader.setUniformf("u_time", time);
+        shader.setUniformi("u_texture", 0);
+
+        for(Emitter emitter : emitters)
+        {
+            if(emitter.lastDeath <= time)
+                continue;
+
+            if(emitter.mesh == null)
+                emitter.createBuffers();
+
+            emitter.upload();
+
+            ParticleEmitter source = emitter.source;
+            int srcFunc = source.isPremultipliedAlpha() ? GL20.GL_ONE : GL20.GL_SRC_ALPHA;
+            int dstFunc = source.isAdditive() ? GL20.GL_ONE : GL20.GL_ONE_MINUS_SRC_ALPHA;
+            Gdx.gl.glBlendFunc(srcFunc, dstFunc);
+
+            shader.setUniform1fv("u_size", emitter.size, 0, CURVE_SAMPLES);
+            shader.setUniform1fv("u_alpha", emitter.alpha, 0, CURVE_SAMPLES);
+            shader.setUniformf("u_tint", emitter.tint[0], emitter.tint[1], emitter.tint[2]);
+            emitter.texture.bind(0);
+            emitter.mesh.render(shader, GL20.GL_TRIANGLES, 0, emitter.capacity * 6);
+        }
+
+        shader.end();
+        Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        Gdx.gl.glDisable(GL20.GL_BLEND);
+
+        batch.begin();
+    }
+
+    private void createShader()
+    {
+        shader = new ShaderProgram(VERTEX_SHADER, FRAGMENT_SHADER);
+
+        if(!shader.isCompiled())
+            throw new GdxRuntimeException("Couldn't compile particle shader: " + shader.getLog());
+    }
+
+    /**
+     * Returns the value a curve adds on top of the low value at its maximum
+     */
+    private static float diff(float low, ScaledNumericValue value)
+    {
+        float high = value.newHighValue();
+        return value.isRelative() ? high : high - low;
+    }
+
+    /**
+     * Picks a new value of a curve at the given scaling
+     */
+    private static float scaled(ScaledNumericValue value, float scale)
+    {
+        float low = value.newLowValue();
+        return low + diff(low, value) * scale;
+    }
+
+    private static float offset(RangedNumericValue value)
+    {
+        return value.isActive() ? value.newLowValue() : 0;
+    }
+
+    /**
+     * Samples a curve over the particle's life, between its average low and
+     * high values
+     */
+    private static void bake(ScaledNumericValue value, float[] out)
+    {
+        float low = (value.getLowMin() + value.getLowMax()) / 2;
+        float high = (value.getHighMin() + value.getHighMax()) / 2;
+
+        if(!value.isRelative())
+            high -= low;
+
+        for(int i = 0; i < out.length; i++)
+            out[i] = low + high * value.getScale(i / (float) (out.length - 1));
+    }
+
+    /**
+     * Returns the average of a curve's scaling over the particle's life. The
+     * curve is linear between timeline points and constant after the last one.
+     */
+    private static float average(ScaledNumericValue value)
+    {
+        float[] timeline = value.getTimeline();
+        float[] scaling = value.getScaling();
+        float total = 0;
+
+        for(int i = 1; i < timeline.length; i++)
+            total += (timeline[i] - timeline[i - 1]) * (scaling[i] + scaling[i - 1]) / 2;
+
+        total += (1 - timeline[timeline.length - 1]) * scaling[scaling.length - 1];
+        return total;
+    }
+
+    /**
+     * Frees the particle buffers, textures and the shader
+     */
+    @Override
+    public void dispose()
+    {
+        for(Emitter emitter : emitters)
+            emitter.dispose();
+
+        if(shader != null)
+            shader.dispose();
+
+        shader = null;
+    }
+}
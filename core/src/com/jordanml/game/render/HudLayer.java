@@ -0,0 +1,131 @@
+package com.jordanml.game.render;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.Pixmap.Format;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * Off-screen layer for the HUD. The HUD is rendered into a FrameBuffer only
+ * when the values it shows change, and is otherwise drawn as a single quad.
+ */
+public class HudLayer implements Disposable
+{
+    private FrameBuffer frameBuffer;
+
+    /**
+     * score    - score shown by the cached HUD
+     * lives    - lives shown by the cached HUD
+     * gameOver - whether the cached HUD shows the game over message
+     * dirty    - the cached HUD has to be redrawn
+     */
+    private int score;
+    private int lives;
+    private boolean gameOver;
+    private boolean dirty;
+
+    public HudLayer()
+    {
+        resize(Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+    }
+
+    /**
+     * Recreates the buffer for the new window size
+     *
+     * @param width  window width in pixels
+     * @param height window height in pixels
+     */
+    public void resize(int width, int height)
+    {
+        if(frameBuffer != null)
+            frameBuffer.dispose();
+
+        frameBuffer = new FrameBuffer(Format.RGBA8888, Math.max(1, width), Math.max(1, height), false);
+        dirty = true;
+    }
+
+    /**
+     * Checks if the cached HUD shows different values than the given ones, and
+     * remembers the given values.
+     *
+     * @return true if the HUD has to be redrawn
+     */
+    public boolean update(int score, int lives, boolean gameOver)
+    {
+        if(score != this.score || lives != this.lives || gameOver != this.gameOver)
+        {
+            this.score = score;
+            this.lives = lives;
+            this.gameOver = gameOver;
+            dirty = true;
+        }
+
+        return dirty;
+    }
+
+    /**
+     * Starts redrawing the HUD. Everything drawn with the batch until end() goes
+     * into the buffer. The buffer stores premultiplied alpha, so transparent HUD
+     * pixels keep correct edges when composited.
+     *
+     * @param batch  the SpriteBatch, must not be drawing
+     * @param camera the GUI camera
+     */
+    public void begin(SpriteBatch batch, OrthographicCamera camera)
+    {
+        frameBuffer.begin();
+        Gdx.gl.glClearColor(0, 0, 0, 0);
+        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+
+        batch.setProjectionMatrix(camera.combined);
+        batch.setBlendFunctionSeparate(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA, GL20.GL_ONE,
+                GL20.GL_ONE_MINUS_SRC_ALPHA);
+        batch.begin();
+    }
+
+    /**
+     * Finishes redrawing the HUD
+     *
+     * @param batch the SpriteBatch passed to begin()
+     */
+    public void end(SpriteBatch batch)
+    {
+        batch.end();
+        batch.setBlendFunction(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        frameBuffer.end();
+        dirty = false;
+    }
+
+    /**
+     * Draws the cached HUD over the whole GUI viewport
+     *
+     * @param batch  the SpriteBatch, must not be drawing
+     * @param camera the GUI camera
+     */
+    public void draw(SpriteBatch batch, OrthographicCamera camera)
+    {
+        Texture texture = frameBuffer.getColorBufferTexture();
+
+        batch.setProjectionMatrix(camera.combined);
+        batch.setBlendFunction(GL20.GL_ONE, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        batch.begin();
+        // The GUI camera is y-down, which cancels the buffer being stored bottom-up
+        batch.draw(texture, 0, 0, camera.viewportWidth, camera.viewportHeight, 0, 0, texture.getWidth(),
+                texture.getHeight(), false, false);
+        batch.end();
+        batch.setBlendFunction(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+    }
+
+    /**
+     * Frees the buffer
+     */
+    @Override
+    public void dispose()
+    {
+        frameBuffer.dispose();
+    }
+}
@@ -0,0 +1,183 @@
+package com.jordanml.game.render;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+
+import com.jordanml.game.level.Level;
+import com.jordanml.game.objects.Land;
+
+/**
+ * Static geometry layer for the level terrain. All Land sprites are compiled
+ * into a SpriteCache once per level load, split into chunks along x so that
+ * only chunks near the camera are drawn. Each chunk costs one draw call per
+ * texture page, instead of one batched sprite per Land piece every frame.
+ */
+public class LandLayer implements RenderQueue.Hook, Disposable
+{
+    // Width of a chunk of cached terrain (in meters)
+    public static final float CHUNK_WIDTH = 32.0f;
+
+    // SpriteCache cannot index more sprites than this
+    private static final int MAX_INDEXED_SPRITES = 8191;
+
+    /**
+     * level      - the level the cache was built for
+     * cache      - holds the terrain vertices on the GPU
+     * cacheIds   - cache id of each chunk
+     * chunkMinX  - left edge of the terrain in each chunk
+     * chunkMaxX  - right edge of the terrain in each chunk
+     */
+    private Level level;
+    private SpriteCache cache;
+    private final IntArray cacheIds;
+    private final FloatArray chunkMinX;
+    private final FloatArray chunkMaxX;
+
+    // Camera projection and visible area for the next draw
+    private final Matrix4 projection;
+    private final Rectangle view;
+
+    public LandLayer()
+    {
+        cacheIds = new IntArray();
+        chunkMinX = new FloatArray();
+        chunkMaxX = new FloatArray();
+        projection = new Matrix4();
+        view = new Rectangle();
+    }
+
+    /**
+     * Compiles the terrain of the given level into the cache, replacing the
+     * terrain of the previous level.
+     *
+     * @param level the level to build the terrain for
+     */
+    public void build(Level level)
+    {
+        this.level = level;
+        disposeCache();
+
+        // Group Land by the chunk its left edge falls in
+        Array<Array<Land>> chunks = new Array<Array<Land>>();
+        Rectangle extent = new Rectangle();
+        int sprites = 0;
+
+        for(Land land : level.lands)
+        {
+            land.getExtent(extent);
+            int chunk = Math.max(0, (int) (extent.x / CHUNK_WIDTH));
+
+            while(chunks.size <= chunk)
+            {
+                chunks.add(new Array<Land>());
+                chunkMinX.add(Float.MAX_VALUE);
+                chunkMaxX.add(-Float.MAX_VALUE);
+            }
+
+            chunks.get(chunk).add(land);
+            chunkMinX.set(chunk, Math.min(chunkMinX.get(chunk), extent.x));
+            chunkMaxX.set(chunk, Math.max(chunkMaxX.get(chunk), extent.x + extent.width));
+            sprites += land.getLength() + 2;
+        }
+
+        if(sprites == 0)
+            return;
+
+        cache = new SpriteCache(sprites, sprites <= MAX_INDEXED_SPRITES);
+
+        // Sort each chunk's sprites by texture so every page is drawn in one call
+        RenderQueue staging = new RenderQueue(sprites);
+
+        for(Array<Land> chunk : chunks)
+        {
+            staging.begin();
+
+            for(Land land : chunk)
+                land.render(staging);
+
+            cache.beginCache();
+            staging.flush(cache);
+            cacheIds.add(cache.endCache());
+        }
+    }
+
+    /**
+     * Returns the level the terrain was last built for
+     *
+     * @return the level, or null if nothing was built yet
+     */
+    public Level getLevel()
+    {
+        return level;
+    }
+
+    /**
+     * Sets the camera used by the next draw
+     *
+     * @param projection the camera's combined matrix
+     * @param view       the area of the world seen by the camera
+     */
+    public void setView(Matrix4 projection, Rectangle view)
+    {
+        this.projection.set(projection);
+        this.view.set(view);
+    }
+
+    /**
+     * Draws the chunks overlapping the view. Called by the render queue at the
+     * Land layer, pauses the batch while the cache draws.
+     */
+    @Override
+    public void draw(SpriteBatch batch)
+    {
+        if(cache == null)
+            return;
+
+        batch.end();
+
+        Gdx.gl.glEnable(GL20.GL_BLEND);
+        Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        cache.setProjectionMatrix(projection);
+        cache.begin();
+
+        for(int i = 0; i < cacheIds.size; i++)
+        {
+            if(chunkMaxX.get(i) >= view.x && chunkMinX.get(i) <= view.x + view.width)
+                cache.draw(cacheIds.get(i));
+        }
+
+        cache.end();
+        Gdx.gl.glDisable(GL20.GL_BLEND);
+
+        batch.begin();
+    }
+
+    private void disposeCache()
+    {
+        if(cache != null)
+            cache.dispose();
+
+        cache = null;
+        cacheIds.clear();
+        chunkMinX.clear();
+        chunkMaxX.clear();
+    }
+
+    /**
+     * Frees the cached terrain
+     */
+    @Override
+    public void dispose()
+    {
+        disposeCache();
+        level = null;
+    }
+}
@@ -0,0 +1,99 @@
+package com.jordanml.game.render;
+
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.Texture.TextureWrap;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Multi-layer parallax background. Every layer is a single quad covering the
+ * camera view, whose texture repeats horizontally and is scrolled by moving the
+ * texture coordinates with the camera. Drawing costs one quad per layer, no
+ * matter how long the level is or how far the camera is zoomed out.
+ */
+public class ParallaxBackground implements RenderQueue.Hook
+{
+    /**
+     * One background layer
+     */
+    private static class Layer
+    {
+        /**
+         * texture  - image of the layer, repeated horizontally
+         * parallax - how fast the layer scrolls relative to the camera, 0 stays
+         *            fixed on screen and 1 moves with the level
+         */
+        final Texture texture;
+        final float parallax;
+
+        Layer(Texture texture, float parallax)
+        {
+            this.texture = texture;
+            this.parallax = parallax;
+        }
+    }
+
+    private final Array<Layer> layers;
+
+    /**
+     * Visible area of the camera for the next draw
+     */
+    private float viewX;
+    private float viewY;
+    private float viewWidth;
+    private float viewHeight;
+    private float cameraX;
+
+    public ParallaxBackground()
+    {
+        layers = new Array<Layer>();
+    }
+
+    /**
+     * Adds a layer in front of the layers added before it. The texture's u wrap
+     * is set to repeat.
+     *
+     * @param texture  image of the layer
+     * @param parallax scroll speed relative to the camera, between 0 and 1
+     */
+    public void addLayer(Texture texture, float parallax)
+    {
+        texture.setWrap(TextureWrap.Repeat, texture.getVWrap());
+        layers.add(new Layer(texture, parallax));
+    }
+
+    /**
+     * Sets the camera used by the next draw
+     *
+     * @param camera the world camera, already updated
+     */
+    public void setView(OrthographicCamera camera)
+    {
+        viewWidth = camera.viewportWidth * camera.zoom;
+        viewHeight = camera.viewportHeight * camera.zoom;
+        viewX = camera.position.x - viewWidth / 2;
+        viewY = camera.position.y - viewHeight / 2;
+        cameraX = camera.position.x;
+    }
+
+    /**
+     * Draws all layers, back to front. Called by the render queue at the
+     * background layer, with the batch using the world camera.
+     */
+    @Override
+    public void draw(SpriteBatch batch)
+    {
+        for(Layer layer : layers)
+        {
+            Texture texture = layer.texture;
+
+            // Layer fills the view height, its width follows the image's aspect ratio
+            float tileWidth = viewHeight * texture.getWidth() / texture.getHeight();
+            float u = (cameraX * layer.parallax - viewWidth / 2) / tileWidth;
+            float u2 = u + viewWidth / tileWidth;
+
+            batch.draw(texture, viewX, viewY, viewWidth, viewHeight, u, 1, u2, 0);
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.jordanml.game.render;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.ObjectIntMap;
+
+import com.jordanml.game.util.RegionDrawer;
+
+/**
+ * Collects the sprites of a frame and hands them to the SpriteBatch sorted by
+ * (layer, texture). Layers keep the visual stacking of object types, while
+ * sorting by texture inside a layer groups sprites that share an atlas page, so
+ * the batch flushes once per page instead of on every page change.
+ */
+public class RenderQueue
+{
+    /**
+     * Layers, drawn from back to front. Matches the order Level used to draw in.
+     */
+    public static final int LAYER_BACKGROUND = 0;
+    public static final int LAYER_CANDYCORN = 1;
+    public static final int LAYER_LAND = 2;
+    public static final int LAYER_ORB = 3;
+    public static final int LAYER_GOAL = 4;
+    public static final int LAYER_PARTICLES = 5;
+    public static final int LAYER_PLAYER = 6;
+    public static final int LAYER_BATS = 7;
+
+    // Texture id used for hooks, sorts them behind the sprites of their layer
+    private static final int HOOK_TEXTURE = 0xffff;
+
+    /**
+     * Custom drawing that cannot be expressed as a sprite, e.g. particle effects.
+     * Runs with the batch between begin() and end().
+     */
+    public interface Hook
+    {
+        public void draw(SpriteBatch batch);
+    }
+
+    /**
+     * vertices - sprite vertices, RegionDrawer.SPRITE_SIZE floats per command
+     * textures - texture of each command, null for hooks
+     * hooks    - hook of each command, null for sprites
+     * keys     - sort key of each command, layer << 16 | texture id
+     * order    - command indices in draw order
+     */
+    private float[] vertices;
+    private Texture[] textures;
+    private Hook[] hooks;
+    private int[] keys;
+    private int[] order;
+    private int[] swap;
+    private final int[] counts = new int[256];
+    private int size;
+    // Whether the commands are in order since they were last changed
+    private boolean sorted;
+
+    // Small ids for the textures seen so far, in first-seen order
+    private final ObjectIntMap<Texture> textureIds;
+
+    /**
+     * submitted  - number of commands queued last frame
+     * flushes    - texture switches while drawing the sorted queue
+     * unsorted   - texture switches the same commands cause in submission order
+     */
+    private int submitted;
+    private int flushes;
+    private int unsorted;
+
+    public RenderQueue()
+    {
+        this(256);
+    }
+
+    /**
+     * @param capacity initial number of commands the queue can hold
+     */
+    public RenderQueue(int capacity)
+    {
+        vertices = new float[capacity * RegionDrawer.SPRITE_SIZE];
+        textures = new Texture[capacity];
+        hooks = new Hook[capacity];
+        keys = new int[capacity];
+        order = new int[capacity];
+        swap = new int[capacity];
+        textureIds = new ObjectIntMap<Texture>();
+    }
+
+    /**
+     * Clears the queue for a new frame
+     */
+    public void begin()
+    {
+        for(int i = 0; i < size; i++)
+        {
+            textures[i] = null;
+            hooks[i] = null;
+        }
+
+        size = 0;
+        sorted = false;
+    }
+
+    /**
+     * Queues a sprite. Arguments after the region match SpriteBatch.draw(Texture, ...)
+     * without the source rectangle.
+     *
+     * @param layer the layer to draw the sprite in
+     * @param reg   the region to draw
+     */
+    public void submit(int layer, TextureRegion reg, float x, float y, float originX, float originY, float width,
+            float height, float scaleX, float scaleY, float rotation, boolean flipX, boolean flipY)
+    {
+        int index = add(layer, textureId(reg.getTexture()));
+        textures[index] = reg.getTexture();
+        RegionDrawer.vertices(vertices, index * RegionDrawer.SPRITE_SIZE, reg, x, y, originX, originY, width, height,
+                scaleX, scaleY, rotation, flipX, flipY);
+    }
+
+    /**
+     * Queues custom drawing. Hooks run after the sprites of their layer.
+     *
+     * @param layer the layer to draw in
+     * @param hook  the drawing to run
+     */
+    public void submit(int layer, Hook hook)
+    {
+        int index = add(layer, HOOK_TEXTURE);
+        hooks[index] = hook;
+    }
+
+    /**
+     * Sorts the queued commands for flush(). Called by flush() if needed;
+     * calling it earlier keeps the sorting out of the draw pass.
+     */
+    public void end()
+    {
+        for(int i = 0; i < size; i++)
+            order[i] = i;
+
+        unsorted = countSwitches();
+        sort();
+        flushes = countSwitches();
+        submitted = size;
+        sorted = true;
+    }
+
+    /**
+     * Draws the queued commands in sorted order, sorting them first unless
+     * end() did. The batch must be drawing.
+     *
+     * @param batch the SpriteBatch to draw with
+     */
+    public void flush(SpriteBatch batch)
+    {
+        if(!sorted)
+            end();
+
+        for(int i = 0; i < size; i++)
+        {
+            int index = order[i];
+
+            if(hooks[index] != null)
+                hooks[index].draw(batch);
+            else
+                batch.draw(textures[index], vertices, index * RegionDrawer.SPRITE_SIZE, RegionDrawer.SPRITE_SIZE);
+        }
+    }
+
+    /**
+     * Sorts the queued sprites and adds them to the cache currently being built.
+     * Hooks cannot be cached and are skipped.
+     *
+     * @param cache a SpriteCache between beginCache() and endCache()
+     */
+    public void flush(SpriteCache cache)
+    {
+        for(int i = 0; i < size; i++)
+            order[i] = i;
+
+        sort();
+
+        for(int i = 0; i < size; i++)
+        {
+            int index = order[i];
+
+            if(hooks[index] == null)
+                cache.add(textures[index], vertices, index * RegionDrawer.SPRITE_SIZE, RegionDrawer.SPRITE_SIZE);
+        }
+    }
+
+    /**
+     * @return number of commands drawn by the last flush
+     */
+    public int getSubmitted()
+    {
+        return submitted;
+    }
+
+    /**
+     * @return texture switches caused by the last flush
+     */
+    public int getFlushes()
+    {
+        return flushes;
+    }
+
+    /**
+     * @return texture switches the last flush avoided by sorting
+     */
+    public int getSavedFlushes()
+    {
+        return unsorted - flushes;
+    }
+
+    /**
+     * Reserves the next command slot, growing the buffers when full
+     *
+     * @return index of the new command
+     */
+    private int add(int layer, int textureId)
+    {
+        if(size == keys.length)
+            grow();
+
+        keys[size] = layer << 16 | textureId;
+        sorted = false;
+        return size++;
+    }
+
+    private void grow()
+    {
+        int capacity = keys.length * 2;
+
+        float[] newVertices = new float[capacity * RegionDrawer.SPRITE_SIZE];
+        System.arraycopy(vertices, 0, newVertices, 0, vertices.length);
+        vertices = newVertices;
+
+        Texture[] newTextures = new Texture[capacity];
+        System.arraycopy(textures, 0, newTextures, 0, size);
+        textures = newTextures;
+
+        Hook[] newHooks = new Hook[capacity];
+        System.arraycopy(hooks, 0, newHooks, 0, size);
+        hooks = newHooks;
+
+        int[] newKeys = new int[capacity];
+        System.arraycopy(keys, 0, newKeys, 0, size);
+        keys = newKeys;
+
+        order = new int[capacity];
+        swap = new int[capacity];
+    }
+
+    /**
+     * Returns a small id for the given texture, assigning a new one when the
+     * texture has not been seen before.
+     */
+    private int textureId(Texture texture)
+    {
+        int id = textureIds.get(texture, -1);
+
+        if(id == -1)
+        {
+            id = textureIds.size;
+            textureIds.put(texture, id);
+        }
+
+        return id;
+    }
+
+    /**
+     * Stable LSD radix sort of order by key, one byte per pass. Passes over
+     * bytes that are zero in every key are skipped.
+     */
+    private void sort()
+    {
+        int maxKey = 0;
+
+        for(int i = 0; i < size; i++)
+            maxKey |= keys[i];
+
+        for(int shift = 0; shift < 32 && (maxKey >>> shift) != 0; shift += 8)
+        {
+            for(int i = 0; i < counts.length; i++)
+                counts[i] = 0;
+
+            for(int i = 0; i < size; i++)
+                counts[(keys[order[i]] >>> shift) & 0xff]++;
+
+            int total = 0;
+
+            for(int i = 0; i < counts.length; i++)
+            {
+                int count = counts[i];
+                counts[i] = total;
+                total += count;
+            }
+
+            for(int i = 0; i < size; i++)
+            {
+                int index = order[i];
+                swap[counts[(keys[index] >>> shift) & 0xff]++] = index;
+            }
+
+            int[] temp = order;
+            order = swap;
+            swap = temp;
+        }
+    }
+
+    /**
+     * Counts texture switches when drawing the commands in the current order.
+     * Hooks may draw anything, so the sprite after a hook always counts.
+     */
+    private int countSwitches()
+    {
+        int switches = 0;
+        Texture last = null;
+
+        for(int i = 0; i < size; i++)
+        {
+            Texture texture = textures[order[i]];
+
+            if(texture != last && texture != null)
+                switches++;
+
+            last = texture;
+        }
+
+        return switches;
+    }
+}
@@ -0,0 +1,240 @@
+package com.jordanml.game.render;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.profiling.GLProfiler;
+
+/**
+ * Collects GPU-side render counters per render pass using libGDX's GLProfiler,
+ * and keeps rolling min/avg/max values over the last frames so that changes in
+ * draw calls or texture switches show up immediately. The counters can be read
+ * through get(), or drawn as an overlay with draw().
+ */
+public class RenderStats
+{
+    // Render passes measured separately
+    public enum PASS
+    {
+        WORLD,
+        GUI;
+    }
+
+    // Counters kept for every pass
+    public enum COUNTER
+    {
+        DRAW_CALLS,
+        TEXTURE_BINDINGS,
+        SHADER_SWITCHES,
+        VERTICES,
+        RENDER_CALLS,
+        MAX_SPRITES_IN_BATCH;
+    }
+
+    // Number of frames the rolling values cover
+    public static final int WINDOW = 60;
+
+    // values() copies its array on every call
+    private static final PASS[] PASSES = PASS.values();
+    private static final COUNTER[] COUNTERS = COUNTER.values();
+
+    /**
+     * Rolling window of the last WINDOW values of one counter
+     */
+    public static class Rolling
+    {
+        private final float[] values = new float[WINDOW];
+        private int next;
+        private int count;
+
+        public float latest;
+        public float min;
+        public float average;
+        public float max;
+
+        /**
+         * Adds the value of the current frame and updates min, average and max
+         */
+        public void put(float value)
+        {
+            values[next] = value;
+            next = (next + 1) % WINDOW;
+            count = Math.min(count + 1, WINDOW);
+            latest = value;
+
+            float total = 0;
+            min = Float.MAX_VALUE;
+            max = -Float.MAX_VALUE;
+
+            for(int i = 0; i < count; i++)
+            {
+                float v = values[i];
+                total += v;
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+            }
+
+            average = total / count;
+        }
+
+        /**
+         * Forgets all values
+         */
+        public void reset()
+        {
+            next = 0;
+            count = 0;
+            latest = min = average = max = 0;
+        }
+    }
+
+    private final GLProfiler profiler;
+    private final Rolling[][] counters;
+    private boolean enabled;
+
+    // SpriteBatch render calls when the current pass started
+    private int batchRenderCalls;
+
+    // Reused to build overlay text without allocating
+    private final StringBuilder text;
+
+    public RenderStats()
+    {
+        profiler = new GLProfiler(Gdx.graphics);
+        counters = new Rolling[PASSES.length][COUNTERS.length];
+
+        for(int pass = 0; pass < counters.length; pass++)
+        {
+            for(int counter = 0; counter < counters[pass].length; counter++)
+                counters[pass][counter] = new Rolling();
+        }
+
+        text = new StringBuilder(256);
+    }
+
+    /**
+     * Starts or stops collecting counters. The profiler wraps every GL call
+     * while enabled, so it is only switched on when someone reads the stats.
+     *
+     * @param enabled true to collect counters
+     */
+    public void setEnabled(boolean enabled)
+    {
+        if(this.enabled == enabled)
+            return;
+
+        this.enabled = enabled;
+
+        if(enabled)
+        {
+            for(Rolling[] pass : counters)
+            {
+                for(Rolling counter : pass)
+                    counter.reset();
+            }
+
+            profiler.enable();
+        }
+        else
+            profiler.disable();
+    }
+
+    /**
+     * @return true if counters are being collected
+     */
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Marks the start of a render pass
+     *
+     * @param batch the SpriteBatch used by the pass
+     */
+    public void beginPass(SpriteBatch batch)
+    {
+        if(!enabled)
+            return;
+
+        profiler.reset();
+        batchRenderCalls = batch.totalRenderCalls;
+        batch.maxSpritesInBatch = 0;
+    }
+
+    /**
+     * Records the counters of the pass that just ended
+     *
+     * @param pass  the pass that ended
+     * @param batch the SpriteBatch used by the pass
+     */
+    public void endPass(PASS pass, SpriteBatch batch)
+    {
+        if(!enabled)
+            return;
+
+        Rolling[] values = counters[pass.ordinal()];
+        values[COUNTER.DRAW_CALLS.ordinal()].put(profiler.getDrawCalls());
+        values[COUNTER.TEXTURE_BINDINGS.ordinal()].put(profiler.getTextureBindings());
+        values[COUNTER.SHADER_SWITCHES.ordinal()].put(profiler.getShaderSwitches());
+        values[COUNTER.VERTICES.ordinal()].put(profiler.getVertexCount().total);
+        values[COUNTER.RENDER_CALLS.ordinal()].put(batch.totalRenderCalls - batchRenderCalls);
+        values[COUNTER.MAX_SPRITES_IN_BATCH.ordinal()].put(batch.maxSpritesInBatch);
+    }
+
+    /**
+     * Returns the rolling values of a counter
+     *
+     * @param pass    the render pass
+     * @param counter the counter
+     * @return latest, min, average and max of the counter over the last WINDOW frames
+     */
+    public Rolling get(PASS pass, COUNTER counter)
+    {
+        return counters[pass.ordinal()][counter.ordinal()];
+    }
+
+    /**
+     * Draws the counters of every pass as lines of text, as latest (min/avg/max).
+     * The batch must be drawing with the GUI camera.
+     *
+     * @param batch the SpriteBatch to draw with
+     * @param font  the font to draw with
+     * @param queue the world render queue, adds its flush counts to the world line
+     * @param x     left edge of the text
+     * @param y     top edge of the text
+     * @return top edge of the line below the text
+     */
+    public float draw(SpriteBatch batch, BitmapFont font, RenderQueue queue, float x, float y)
+    {
+        float lineHeight = font.getLineHeight();
+
+        text.setLength(0);
+        text.append("latest (min/avg/max): draws, binds, shaders, vertices, batch calls, max sprites");
+        font.draw(batch, text, x, y);
+
+        for(PASS pass : PASSES)
+        {
+            y += lineHeight;
+            text.setLength(0);
+            text.append(pass.name());
+
+            for(COUNTER counter : COUNTERS)
+            {
+                Rolling value = get(pass, counter);
+                text.append("  ").append((int) value.latest).append(" (").append((int) value.min).append('/')
+                        .append((int) value.average).append('/').append((int) value.max).append(')');
+            }
+
+            font.draw(batch, text, x, y);
+        }
+
+        y += lineHeight;
+        text.setLength(0);
+        text.append("queue  sprites ").append(queue.getSubmitted()).append("  flushes ").append(queue.getFlushes())
+                .append("  saved ").append(queue.getSavedFlushes());
+        font.draw(batch, text, x, y);
+
+        return y + lineHeight;
+    }
+}
@@ -64,6 +64,7 @@ public class GameScreen extends AbstractScreen
     public void hide()
     {
         worldRenderer.dispose();
+        worldController.dispose();
     }
     
     /**
@@ -0,0 +1,87 @@
+package com.jordanml.game.update;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+
+/**
+ * A bounded queue of rectangles, handed from one producer thread to one
+ * consumer thread without locks. Each side only writes its own counter, and
+ * a counter is written after the slot it covers, so the other side never sees
+ * a half-written rectangle. The physics thread uses it to report the player's
+ * hitbox after every step.
+ *
+ * Rectangles are copied in and out, the queue allocates nothing once created.
+ */
+public class HitboxQueue
+{
+    /**
+     * boxes - x, y, width and height of each slot
+     * mask  - slot count minus one, the slot count is a power of two
+     * head  - number of rectangles taken, written by the consumer only
+     * tail  - number of rectangles added, written by the producer only
+     */
+    private final float[] boxes;
+    private final int mask;
+    private volatile int head;
+    private volatile int tail;
+
+    /**
+     * @param capacity most rectangles the queue holds at once, rounded up to
+     *                 a power of two
+     */
+    public HitboxQueue(int capacity)
+    {
+        int slots = MathUtils.nextPowerOfTwo(Math.max(1, capacity));
+        boxes = new float[slots * 4];
+        mask = slots - 1;
+    }
+
+    /**
+     * Adds a rectangle. Producer thread only.
+     *
+     * @param box the rectangle, copied
+     * @return false if the queue is full
+     */
+    public boolean offer(Rectangle box)
+    {
+        int t = tail;
+
+        if(t - head > mask)
+            return false;
+
+        int i = (t & mask) * 4;
+        boxes[i] = box.x;
+        boxes[i + 1] = box.y;
+        boxes[i + 2] = box.width;
+        boxes[i + 3] = box.height;
+        tail = t + 1;
+        return true;
+    }
+
+    /**
+     * Takes the oldest rectangle. Consumer thread only.
+     *
+     * @param out rectangle receiving the oldest one
+     * @return false if the queue is empty, out is left as it is
+     */
+    public boolean poll(Rectangle out)
+    {
+        int h = head;
+
+        if(h == tail)
+            return false;
+
+        int i = (h & mask) * 4;
+        out.set(boxes[i], boxes[i + 1], boxes[i + 2], boxes[i + 3]);
+        head = h + 1;
+        return true;
+    }
+
+    /**
+     * Drops everything queued. Only while the producer is idle.
+     */
+    public void clear()
+    {
+        head = tail;
+    }
+}
@@ -0,0 +1,233 @@
+package com.jordanml.game.update;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.TimeUtils;
+
+import com.jordanml.game.level.Level;
+import com.jordanml.game.objects.AbstractGameObject;
+import com.jordanml.game.physics.PhysicsBackend;
+import com.jordanml.game.util.Constants;
+
+/**
+ * Runs the physics steps of a tick on a thread of their own, so the frame is
+ * rendered while the world steps. A tick hands its steps over with submit()
+ * and returns at once; the next tick waits for them with finish() before game
+ * logic touches a body again. Bodies therefore only ever have one owner: the
+ * game thread between finish() and submit(), the physics thread in between.
+ *
+ * Two things come back from the physics thread: the transforms of the moving
+ * objects, published through a TransformSnapshot that rendering reads
+ * without waiting, and the player's hitbox after every step, through a
+ * HitboxQueue that the next tick drains to collect pickups.
+ *
+ * Without a thread, e.g. for headless runs that already use a thread per
+ * world, submit() steps on the calling thread. Both ways run the same steps
+ * in the same order, so replays repeat either way.
+ */
+public class PhysicsThread implements Disposable
+{
+    /**
+     * executor  - the physics thread, or null to step on the calling thread
+     * batch     - the steps of one tick, reused
+     * pending   - the batch running on the physics thread, or null
+     * level     - level whose bodies are stepped
+     * physics   - backend simulating the level
+     * snapshot  - transforms published for rendering
+     * hitboxes  - player hitbox after each step, not yet collected
+     * stepNanos - time spent in physics steps since the level started
+     * steps     - physics steps since the level started
+     */
+    private final ExecutorService executor;
+    private final Batch batch;
+    private Future<?> pending;
+    private Level level;
+    private PhysicsBackend physics;
+    private TransformSnapshot snapshot;
+    private final HitboxQueue hitboxes;
+    private volatile long stepNanos;
+    private volatile int steps;
+
+    /**
+     * @param threaded whether to step on a thread of its own
+     */
+    public PhysicsThread(boolean threaded)
+    {
+        batch = new Batch();
+        // A tick never runs more steps than this, and its hitboxes are collected before the next one
+        hitboxes = new HitboxQueue(Constants.PHYSICS_MAX_STEPS);
+
+        if(threaded)
+        {
+            executor = Executors.newSingleThreadExecutor(new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable runnable)
+                {
+                    // Must not keep the application alive
+                    Thread thread = new Thread(runnable, "Physics");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        else
+            executor = null;
+    }
+
+    /**
+     * Starts stepping a new level. Waits for steps of the previous level
+     * first, and drops its hitboxes.
+     *
+     * @param level   the level, its bodies must already exist
+     * @param physics backend simulating the level
+     */
+    public void setLevel(Level level, PhysicsBackend physics)
+    {
+        finish();
+        this.level = level;
+        this.physics = physics;
+
+        Array<AbstractGameObject> movers = new Array<AbstractGameObject>();
+        level.getMovingObjects(movers);
+        snapshot = new TransformSnapshot(movers);
+        snapshot.sync();
+
+        hitboxes.clear();
+        stepNanos = 0;
+        steps = 0;
+    }
+
+    /**
+     * Hands the steps of a tick over to the physics thread. Call once per
+     * tick, even with no steps due, so the snapshot picks up bodies moved by
+     * game logic. The game thread must not touch a body until finish().
+     *
+     * @param count number of steps to run
+     */
+    public void submit(int count)
+    {
+        finish();
+        snapshot.sync();
+
+        if(count == 0)
+            return;
+
+        batch.count = count;
+
+        if(executor == null)
+            batch.run();
+        else
+            pending = executor.submit(batch);
+    }
+
+    /**
+     * @return true while submitted steps are still running
+     */
+    public boolean isBusy()
+    {
+        return pending != null && !pending.isDone();
+    }
+
+    /**
+     * Waits for the submitted steps. Afterwards the game thread owns the
+     * bodies again.
+     */
+    public void finish()
+    {
+        if(pending == null)
+            return;
+
+        try
+        {
+            pending.get();
+        }
+        catch(InterruptedException e)
+        {
+            throw new GdxRuntimeException("Interrupted while waiting for the physics thread", e);
+        }
+        catch(ExecutionException e)
+        {
+            throw new GdxRuntimeException("Physics step failed", e.getCause());
+        }
+        finally
+        {
+            pending = null;
+        }
+    }
+
+    /**
+     * @return the player's hitbox after each step, to be drained after finish()
+     */
+    public HitboxQueue getHitboxes()
+    {
+        return hitboxes;
+    }
+
+    /**
+     * @return the transforms of the moving objects, for rendering
+     */
+    public TransformSnapshot getSnapshot()
+    {
+        return snapshot;
+    }
+
+    /**
+     * @return average time of a physics step since the level started, in milliseconds
+     */
+    public float getAverageStepTime()
+    {
+        int count = steps;
+        return count == 0 ? 0 : stepNanos / 1000000.0f / count;
+    }
+
+    /**
+     * Waits for running steps and stops the thread
+     */
+    @Override
+    public void dispose()
+    {
+        finish();
+
+        if(executor != null)
+            executor.shutdown();
+    }
+
+    /**
+     * The steps of one tick
+     */
+    private class Batch implements Runnable
+    {
+        private final Rectangle hitbox = new Rectangle();
+        private int count;
+
+        @Override
+        public void run()
+        {
+            for(int i = 0; i < count; i++)
+            {
+                // Rendering interpolates across the last step only
+                if(i == count - 1)
+                    snapshot.capturePrevious();
+
+                long start = TimeUtils.nanoTime();
+                physics.step(Constants.PHYSICS_STEP);
+                stepNanos += TimeUtils.timeSinceNanos(start);
+                steps++;
+
+                if(!hitboxes.offer(level.player.getHitbox(hitbox)))
+                    throw new GdxRuntimeException("Hitbox queue overflow, hitboxes were not collected");
+            }
+
+            snapshot.captureAndPublish();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.jordanml.game.update;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+
+import com.jordanml.game.objects.AbstractGameObject;
+
+/**
+ * The transforms of the moving objects around the last physics step, for
+ * rendering. There are two buffers: the physics thread writes the back buffer
+ * while it steps, then publishes it by making it the front buffer. Rendering
+ * reads the front buffer only, so it never waits for a step and never sees a
+ * half-stepped world.
+ *
+ * Each buffer holds, per object, the transform before the last step, the one
+ * after it, and whether the body was active. Game logic that moves or switches
+ * a body between steps makes the front buffer stale for that object; sync()
+ * finds and fixes those objects before the next step is handed over.
+ */
+public class TransformSnapshot
+{
+    /**
+     * movers                - objects with moving bodies, slot i is movers[i]
+     * previousX, previousY  - body position before the last step, per buffer
+     * previousRotation      - body angle before the last step in degrees, per buffer
+     * x, y                  - body position after the last step, per buffer
+     * rotation              - body angle after the last step in degrees, per buffer
+     * active                - whether the body was active, per buffer
+     * front                 - buffer read by rendering, the other one is written
+     */
+    private final Array<AbstractGameObject> movers;
+    private final float[][] previousX;
+    private final float[][] previousY;
+    private final float[][] previousRotation;
+    private final float[][] x;
+    private final float[][] y;
+    private final float[][] rotation;
+    private final boolean[][] active;
+    private volatile int front;
+
+    /**
+     * @param movers objects with moving bodies; the array is kept, and must
+     *               not change afterwards
+     */
+    public TransformSnapshot(Array<AbstractGameObject> movers)
+    {
+        this.movers = movers;
+        previousX = new float[2][movers.size];
+        previousY = new float[2][movers.size];
+        previousRotation = new float[2][movers.size];
+        x = new float[2][movers.size];
+        y = new float[2][movers.size];
+        rotation = new float[2][movers.size];
+        active = new boolean[2][movers.size];
+    }
+
+    /**
+     * Stores the body transforms before the last step of a batch into the back
+     * buffer. Physics thread only.
+     */
+    void capturePrevious()
+    {
+        int back = 1 - front;
+
+        for(int i = 0; i < movers.size; i++)
+        {
+            AbstractGameObject obj = movers.get(i);
+            Vector2 position = obj.body.getPosition();
+            previousX[back][i] = position.x;
+            previousY[back][i] = position.y;
+            previousRotation[back][i] = obj.body.getAngle() * MathUtils.radiansToDegrees;
+        }
+    }
+
+    /**
+     * Stores the body transforms after the last step of a batch into the back
+     * buffer, and publishes it. Physics thread only.
+     */
+    void captureAndPublish()
+    {
+        int back = 1 - front;
+
+        for(int i = 0; i < movers.size; i++)
+        {
+            AbstractGameObject obj = movers.get(i);
+            Vector2 position = obj.body.getPosition();
+            x[back][i] = position.x;
+            y[back][i] = position.y;
+            rotation[back][i] = obj.body.getAngle() * MathUtils.radiansToDegrees;
+            active[back][i] = obj.body.isActive();
+        }
+
+        front = back;
+    }
+
+    /**
+     * Brings the front buffer up to date with bodies that game logic moved or
+     * switched on or off since it was captured, e.g. a respawned bat. Those
+     * objects are not interpolated until the next step. Only while no step
+     * is running.
+     */
+    void sync()
+    {
+        int f = front;
+
+        for(int i = 0; i < movers.size; i++)
+        {
+            AbstractGameObject obj = movers.get(i);
+            Vector2 position = obj.body.getPosition();
+            float angle = obj.body.getAngle() * MathUtils.radiansToDegrees;
+            boolean isActive = obj.body.isActive();
+
+            if(isActive == active[f][i] && position.x == x[f][i] && position.y == y[f][i] && angle == rotation[f][i])
+                continue;
+
+            previousX[f][i] = x[f][i] = position.x;
+            previousY[f][i] = y[f][i] = position.y;
+            previousRotation[f][i] = rotation[f][i] = angle;
+            active[f][i] = isActive;
+        }
+    }
+
+    /**
+     * Moves the objects between their transforms before and after the last
+     * published step. Objects whose bodies were inactive keep the position
+     * they moved to on their own. Game logic reads the bodies again on the
+     * next update.
+     *
+     * @param alpha 0 for the transform before the step, 1 for the one after
+     */
+    public void interpolate(float alpha)
+    {
+        // Read once, a step published meanwhile is picked up next frame
+        int f = front;
+
+        for(int i = 0; i < movers.size; i++)
+        {
+            if(!active[f][i])
+                continue;
+
+            AbstractGameObject obj = movers.get(i);
+            obj.position.set(previousX[f][i] + (x[f][i] - previousX[f][i]) * alpha,
+                    previousY[f][i] + (y[f][i] - previousY[f][i]) * alpha);
+            obj.rotation = previousRotation[f][i] + (rotation[f][i] - previousRotation[f][i]) * alpha;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.jordanml.game.update;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.jordanml.game.util.Constants;
+
+/**
+ * Runs the independent part of an update on several threads. Work is split
+ * into chunks of at most Constants.UPDATE_CHUNK_SIZE items, which a shared
+ * ForkJoinPool runs in parallel; work that fits into a single chunk runs on
+ * the calling thread, without touching the pool.
+ *
+ * Only work that touches nothing but its own items may be handed in: no Box2D
+ * mutations, no audio, no shared random numbers. Everything else stays on the
+ * calling thread, before or after run().
+ */
+public class UpdateScheduler
+{
+    public static final UpdateScheduler instance = new UpdateScheduler();
+
+    /**
+     * Work on a range of independent items
+     */
+    public interface Task
+    {
+        /**
+         * Updates the items in the given range. May be called on any thread,
+         * for several ranges at once.
+         *
+         * @param from      first item
+         * @param to        item after the last one
+         * @param deltaTime time passed since the previous frame
+         */
+        public void update(int from, int to, float deltaTime);
+    }
+
+    /**
+     * pool      - worker threads, created on the first parallel run
+     * chunkSize - most items a single thread updates in one go
+     * parallel  - whether large updates may use the pool at all
+     */
+    private ForkJoinPool pool;
+    private final int chunkSize;
+    public boolean parallel = true;
+
+    // Singleton: prevent instantiation from other classes
+    private UpdateScheduler()
+    {
+        chunkSize = Constants.UPDATE_CHUNK_SIZE;
+    }
+
+    /**
+     * Updates the given number of items, in parallel if there are more than
+     * fit into one chunk. Returns once all items are updated.
+     *
+     * @param task      the work
+     * @param count     number of items, the task gets ranges of 0 to count
+     * @param deltaTime time passed since the previous frame
+     */
+    public void run(Task task, int count, float deltaTime)
+    {
+        if(!parallel || count <= chunkSize)
+        {
+            task.update(0, count, deltaTime);
+            return;
+        }
+
+        getPool().invoke(new Chunk(task, 0, count, deltaTime));
+    }
+
+    private synchronized ForkJoinPool getPool()
+    {
+        // Worker threads are daemons, the pool never has to be shut down
+        if(pool == null)
+            pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+        return pool;
+    }
+
+    /**
+     * A range of items, split in halves until the halves fit into a chunk
+     */
+    private class Chunk extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Task task;
+        private final int from;
+        private final int to;
+        private final float deltaTime;
+
+        Chunk(Task task, int from, int to, float deltaTime)
+        {
+            this.task = task;
+            this.from = from;
+            this.to = to;
+            this.deltaTime = deltaTime;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if(to - from <= chunkSize)
+            {
+                task.update(from, to, deltaTime);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new Chunk(task, from, middle, deltaTime), new Chunk(task, middle, to, deltaTime));
+        }
+    }
+}
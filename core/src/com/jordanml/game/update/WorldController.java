@@ -3,52 +3,172 @@ package com.jordanml.game.update;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.InputAdapter;
 import com.badlogic.gdx.physics.box2d.Body;
-import com.badlogic.gdx.physics.box2d.Contact;
-import com.badlogic.gdx.physics.box2d.ContactImpulse;
-import com.badlogic.gdx.physics.box2d.ContactListener;
-import com.badlogic.gdx.physics.box2d.Fixture;
-import com.badlogic.gdx.physics.box2d.Manifold;
-import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.Application.ApplicationType;
 import com.badlogic.gdx.Game;
 import com.badlogic.gdx.Input.Keys;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.TimeUtils;
 import com.jordanml.game.assets.Assets;
+import com.jordanml.game.level.ActivationManager;
 import com.jordanml.game.level.Level;
-import com.jordanml.game.objects.AbstractGameObject;
-import com.jordanml.game.objects.Candycorn;
-import com.jordanml.game.objects.Goal;
-import com.jordanml.game.objects.Land;
-import com.jordanml.game.objects.Orb;
+import com.jordanml.game.objects.Pickups;
 import com.jordanml.game.objects.Player;
+import com.jordanml.game.physics.PhysicsBackend;
 import com.jordanml.game.screens.MenuScreen;
 import com.jordanml.game.util.Constants;
 import com.jordanml.game.util.AudioManager;
 import com.jordanml.game.util.CameraHelper;
+import com.jordanml.game.util.PlayerInput;
+import com.jordanml.game.util.Replay;
 
 /**
  * This class will handle most general game logic.
  *
  */
-public class WorldController extends InputAdapter
+public class WorldController extends InputAdapter implements Disposable
 {    
     public static final String TAG = WorldController.class.getName();
     
     public Level level;
     public CameraHelper cameraHelper;
-    public World world;
+    public PhysicsBackend physics;
     
     public int lives;
     public int score;
     
+    // Show the render statistics overlay
+    public boolean showRenderStats;
+    
+    // Render the world at a resolution that follows the GPU load, off until toggled
+    public boolean dynamicResolution;
+    
     private Game game;
     private float timeLeftGameOverDelay;
+    // Frame time not yet simulated by a physics step
+    private float physicsTime;
+    // Frame time that passed while the physics thread was still busy
+    private float skippedTime;
+    // Bodies in the backend, read while the physics thread was idle
+    private int physicsBodyCount;
+    // Switches off bodies far from the camera
+    private ActivationManager activationManager;
+    private final Rectangle activationView = new Rectangle();
+    
+    /**
+     * playerHitbox   - the player's box after the last physics step
+     * goalArea       - area covered by the goal
+     * touchedPickups - pickups overlapping the player after the last physics step
+     */
+    private final Rectangle playerHitbox = new Rectangle();
+    private final Rectangle goalArea = new Rectangle();
+    private final IntArray touchedPickups = new IntArray();
+    
+    /**
+     * physicsType   - backend new games are simulated with, picked by the caller as level
+     *                 files do not name one; replays use their own
+     * physicsThread - steps the backend, on a thread of its own when there is a game
+     */
+    private final PhysicsBackend.BACKEND_TYPE physicsType;
+    private final PhysicsThread physicsThread;
+    
+    /**
+     * input        - player controls of the current tick, from the keyboard or a replay
+     * seed         - seed of the current level's random numbers
+     * seeds        - source of the seeds of new games
+     * recording    - replay being recorded, or null
+     * playback     - replay being played back, or null
+     * playbackTick - next tick of the replay to play
+     * divergedTick - first tick whose checksum did not match the replay, or -1
+     * replayFile   - file the last recording was saved to
+     * disposed     - set once the controller is disposed, e.g. by leaving the game
+     */
+    private final PlayerInput input = new PlayerInput();
+    private long seed;
+    private final RandomXS128 seeds;
+    private Replay recording;
+    private Replay playback;
+    private int playbackTick;
+    private int divergedTick;
+    private FileHandle replayFile;
+    private boolean disposed;
+    
+    // Play replays back as fast as possible instead of at their recorded speed
+    public boolean fastForward;
+    
+    /**
+     * Plays the game instead of the keyboard, e.g. for soak tests
+     */
+    public interface Bot
+    {
+        /**
+         * @param level the level being played
+         * @return the player's buttons for the next tick, see PlayerInput
+         */
+        public int nextButtons(Level level);
+    }
+    
+    // Level image to load
+    private final String levelFile;
+    // Plays instead of the keyboard, or null
+    private Bot bot;
+    // Set when the game ended without a game to return to
+    private boolean finished;
     
     public WorldController(Game game)
+    {
+        this(game, Constants.LEVEL_01, null);
+    }
+    
+    /**
+     * @param game      the game, or null to run without screens; the game then
+     *                  only ends, see isFinished()
+     * @param levelFile the level image to load
+     * @param playback  replay to play back, or null to play from the keyboard
+     */
+    public WorldController(Game game, String levelFile, Replay playback)
+    {
+        this(game, levelFile, playback, TimeUtils.millis());
+    }
+    
+    /**
+     * @param game      the game, or null to run without screens; the game then
+     *                  only ends, see isFinished()
+     * @param levelFile the level image to load
+     * @param playback  replay to play back, or null to play from the keyboard
+     * @param seed      seeds the games played without a replay, so that
+     *                  controllers created at the same time play different games
+     */
+    public WorldController(Game game, String levelFile, Replay playback, long seed)
+    {
+        this(game, levelFile, playback, seed, PhysicsBackend.BACKEND_TYPE.BOX2D);
+    }
+    
+    /**
+     * @param game        the game, or null to run without screens; the game then
+     *                    only ends, see isFinished()
+     * @param levelFile   the level image to load
+     * @param playback    replay to play back, or null to play from the keyboard
+     * @param seed        seeds the games played without a replay, so that
+     *                    controllers created at the same time play different games
+     * @param physicsType backend simulating games played without a replay, the
+     *                    same for every level this controller loads
+     */
+    public WorldController(Game game, String levelFile, Replay playback, long seed,
+            PhysicsBackend.BACKEND_TYPE physicsType)
     {
         this.game = game;
+        this.levelFile = levelFile;
+        this.playback = playback;
+        this.physicsType = physicsType;
+        // Headless runs already put each world on a thread of its own
+        physicsThread = new PhysicsThread(game != null);
+        seeds = new RandomXS128(seed);
         init();
     }
     
@@ -57,132 +177,117 @@ public class WorldController extends InputAdapter
      */
     public void init()
     {
-        // Set world controller as input processor
-        Gdx.input.setInputProcessor(this);
+        // Bodies are about to be replaced, let running steps end first
+        physicsThread.finish();
+        
+        // Set world controller as input processor, without a game nobody is typing
+        if(game != null)
+            Gdx.input.setInputProcessor(this);
         cameraHelper = new CameraHelper();
         score = 0;
         lives = Constants.MAX_LIVES;
+        finished = false;
+        
+        // A replay repeats the game it recorded, starting from the same seed
+        if(playback != null)
+        {
+            seed = playback.getSeed();
+            playbackTick = 0;
+            divergedTick = -1;
+        }
+        else
+            seed = seeds.nextLong();
+        
         initLevel();
+        
+        // Restarting while recording saves the game so far and records the next one
+        if(recording != null)
+        {
+            if(recording.size() > 0)
+                stopRecording();
+            
+            recording = new Replay(seed, physics.getType());
+        }
     }
     
     /**
-     * Initialize box2d world and object physics
+     * Initialize the physics backend and object physics. A replay runs on the
+     * backend it was recorded with.
      */
     private void initPhysics()
     {
-        if(world != null)
-            world.dispose();
+        if(physics != null)
+            physics.dispose();
         
-        world = new World(new Vector2(0, -9.81f), true);
+        physics = playback != null ? playback.getPhysics().create() : physicsType.create();
 
-        for(Candycorn candycorn : level.candycorns)
-        {
-            candycorn.initPhysics(world);
-        }
+        // Pickups and the goal have no bodies, see collectPickups()
+        physics.createTerrain(level);
         
-        for(Orb orb : level.orbs)
+        level.player.initPhysics(physics);
+        level.bats.initPhysics(physics);
+        level.bats.init();
+        physicsThread.setLevel(level, physics);
+        physicsBodyCount = physics.getBodyCount();
+    }
+    
+    /**
+     * Reacts to the player touching pickups or the goal during the physics
+     * steps of the previous tick. Waits for the steps, then goes through the
+     * player's hitbox after each of them. Neither pickups nor the goal has a
+     * body: pickups are found in the pickup grid under the hitbox, the goal is
+     * a single rectangle.
+     */
+    private void collectPickups()
+    {
+        physicsThread.finish();
+        physicsBodyCount = physics.getBodyCount();
+        HitboxQueue hitboxes = physicsThread.getHitboxes();
+        
+        while(hitboxes.poll(playerHitbox))
+            collectPickups(playerHitbox);
+    }
+    
+    /**
+     * Reacts to the player touching pickups or the goal after one physics step
+     * 
+     * @param playerHitbox the player's hitbox after the step
+     */
+    private void collectPickups(Rectangle playerHitbox)
+    {
+        level.pickups.findOverlapping(playerHitbox, touchedPickups);
+        
+        for(int i = 0; i < touchedPickups.size; i++)
         {
-            orb.initPhysics(world);
+            int pickup = touchedPickups.get(i);
+            
+            if(!level.pickups.collect(pickup))
+                continue;
+            
+            if(level.pickups.getType(pickup) == Pickups.PICKUP_TYPE.ORB)
+            {
+                Gdx.app.debug(TAG, " Player <-> Orb");
+                score += Constants.ORB_SCORE;
+                level.player.collectedOrb();
+                AudioManager.instance.play(Assets.instance.sound.powerup);
+            }
+            else
+            {
+                Gdx.app.debug(TAG, " Player <-> Candycorn");
+                score += Constants.CANDYCORN_SCORE;
+            }
         }
         
-        for(Land land : level.lands)
+        if(!level.goal.reached && level.goal.getExtent(goalArea).overlaps(playerHitbox))
         {
-            land.initPhysics(world);
+            Gdx.app.debug(TAG, " Player <-> Goal");
+            
+            level.goal.onPlayerReached();
+            level.player.onGoalReached();
+            level.goalReached = true;
+            timeLeftGameOverDelay = Constants.GAME_OVER_DELAY;
+            score += Constants.GOAL_REACHED;
         }
-        
-        level.player.initPhysics(world);
-        level.bats.initPhysics(world);
-        level.bats.init();
-        level.goal.initPhysics(world);
-        
-        world.setContactListener(new ContactListener()
-                                {
-
-                                    @Override
-                                    public void beginContact(Contact contact)
-                                    {
-                                        Fixture fixtureA = contact.getFixtureA();
-                                        Fixture fixtureB = contact.getFixtureB();
-                                        Fixture object;
-                                        
-                                        // Check for contact between player and another object
-                                        if(fixtureA.getBody().getUserData() instanceof Player || fixtureB.getBody().getUserData() instanceof Player)
-                                        {   
-                                            if(fixtureA.getBody().getUserData() instanceof Player)
-                                                object = fixtureB;
-                                            else
-                                                object = fixtureA;
-                                            
-                                            // Check for contact between player and Candycorn
-                                            if(object.getBody().getUserData() instanceof Candycorn)
-                                            {
-                                                Gdx.app.debug(TAG, " Player <-> Candycorn");
-                                                
-                                                Candycorn candy = (Candycorn) object.getBody().getUserData();
-                                                
-                                                if(!candy.collected)
-                                                {
-                                                    candy.collected = true;
-                                                    //world.destroyBody(candy.body);
-                                                    score += Constants.CANDYCORN_SCORE;
-                                                }
-                                            }
-                                            // Check for contact between player and Orb
-                                            else if(object.getBody().getUserData() instanceof Orb)
-                                            {
-                                                Gdx.app.debug(TAG, " Player <-> Orb");
-                                                
-                                                Orb orb = (Orb) object.getBody().getUserData();
-                                                
-                                                if(!orb.collected)
-                                                {
-                                                    orb.collected = true;
-                                                    score += Constants.ORB_SCORE;
-                                                    level.player.collectedOrb();
-                                                    AudioManager.instance.play(Assets.instance.sound.powerup);
-                                                }
-                                            }
-                                            // Check for contact between player and Goal
-                                            else if(object.getBody().getUserData() instanceof Goal)
-                                            {
-                                                Gdx.app.debug(TAG, " Player <-> Goal");
-                                                
-                                                Goal goal = (Goal) object.getBody().getUserData();
-                                                
-                                                if(!goal.reached)
-                                                {
-                                                    goal.onPlayerReached();
-                                                    level.player.onGoalReached();
-                                                    level.goalReached = true;
-                                                    timeLeftGameOverDelay = Constants.GAME_OVER_DELAY;
-                                                    score += Constants.GOAL_REACHED;
-                                                }
-                                            }
-                                        }
-                                        
-                                        
-                                    }
-
-                                    @Override
-                                    public void endContact(Contact contact)
-                                    {
-                                        // TODO Auto-generated method stub
-                                    }
-
-                                    @Override
-                                    public void preSolve(Contact contact, Manifold oldManifold)
-                                    {
-                                        // TODO Auto-generated method stub
-                                        
-                                    }
-
-                                    @Override
-                                    public void postSolve(Contact contact, ContactImpulse impulse)
-                                    {
-                                        // TODO Auto-generated method stub
-                                        
-                                    }
-                                });
     }
     
     /**
@@ -190,23 +295,118 @@ public class WorldController extends InputAdapter
      */
     private void initLevel()
     {
-        level = new Level(Constants.LEVEL_01);
+        if(level != null)
+            level.dispose();
+        
+        physicsTime = 0;
+        skippedTime = 0;
+        timeLeftGameOverDelay = 0;
+        
+        level = new Level(levelFile, seed);
         cameraHelper.setTarget(level.player);
         initPhysics();
+        
+        activationManager = new ActivationManager(Constants.ACTIVATION_CELL_SIZE, Constants.ACTIVATION_MARGIN);
+        level.bats.registerMoving(activationManager);
     }
     
     /**
-     * Update world objects
+     * Update world objects. While a replay plays back, the recorded frame
+     * times and controls are used instead of the given time and the keyboard.
      * 
      * @param deltaTime - The time passed since the last frame
      */
     public void update(float deltaTime)
     {
+        // The free camera is not part of the game, replays keep following the player
+        if(playback == null)
+            handleCameraInput(deltaTime);
         
-        handleInput(deltaTime);
-        level.update(deltaTime);
-        world.step(deltaTime, 8, 3);
+        // Presses last one frame, keep them for the next tick even if this frame has none
+        if(playback == null && bot == null && cameraHelper.hasTarget(level.player))
+            input.latchKeyboard();
+        
+        // Rendering goes on while the physics thread still works on the last
+        // tick; the time is simulated by the next tick instead
+        if(physicsThread.isBusy())
+        {
+            skippedTime += deltaTime;
+            return;
+        }
+        
+        deltaTime += skippedTime;
+        skippedTime = 0;
+        
+        if(playback == null)
+        {
+            if(bot != null)
+                input.set(bot.nextButtons(level));
+            else if(cameraHelper.hasTarget(level.player))
+                input.readKeyboard();
+            else
+                // The arrow keys steer the free camera, the player gets no buttons
+                input.set(0);
+            
+            tick(deltaTime);
+            
+            if(recording != null && !disposed)
+                recording.record(deltaTime, input.get(), checksum());
+            
+            return;
+        }
+        
+        // Fast forward plays as many ticks as fit in the frame budget
+        long start = TimeUtils.nanoTime();
+        
+        do
+        {
+            playbackTick();
+        }
+        while(fastForward && playback != null && !disposed
+                && TimeUtils.nanosToMillis(TimeUtils.timeSinceNanos(start)) < Constants.REPLAY_FAST_FORWARD_BUDGET);
+    }
+    
+    /**
+     * Plays the next tick of the replay, and compares the resulting checksum
+     * with the recorded one
+     */
+    private void playbackTick()
+    {
+        input.set(playback.getButtons(playbackTick));
+        tick(playback.getDelta(playbackTick));
+        
+        if(disposed)
+            return;
+        
+        if(divergedTick == -1 && checksum() != playback.getChecksum(playbackTick))
+        {
+            divergedTick = playbackTick;
+            Gdx.app.error(TAG, "Replay diverged at tick " + divergedTick);
+        }
         
+        if(++playbackTick == playback.size())
+        {
+            Gdx.app.log(TAG, "Replay finished after " + playbackTick + " ticks, "
+                    + (divergedTick == -1 ? "no divergence" : "diverged at tick " + divergedTick));
+            playback = null;
+        }
+    }
+    
+    /**
+     * Simulates one tick
+     * 
+     * @param deltaTime time simulated by the tick
+     */
+    private void tick(float deltaTime)
+    {
+        // The physics steps of the last tick may still be running
+        collectPickups();
+        
+        if(!level.goalReached)
+            level.player.handleInput(input);
+        
+        level.update(deltaTime);
+        updateActivation();
         cameraHelper.update(deltaTime);
         
         if(isGameOver() || level.goalReached)
@@ -231,8 +431,114 @@ public class WorldController extends InputAdapter
                 timeLeftGameOverDelay = Constants.GAME_OVER_DELAY;
             }
             else
-                initLevel();
+                level.reset();
         }
+        
+        // Last, game logic must not touch bodies while they are stepped
+        stepPhysics(deltaTime);
+    }
+    
+    /**
+     * Switches on the bodies around the player and switches off the rest. The
+     * view is the one the following camera shows at normal zoom, centred on
+     * the player rather than taken from the camera, which can be moved and
+     * zoomed freely and is not recorded in replays. Its width assumes the
+     * GUI's aspect ratio rather than the window's, so the simulation does not
+     * depend on the window size and replays repeat; the activation margin
+     * covers wider windows and the camera trailing behind the player.
+     */
+    private void updateActivation()
+    {
+        float height = Constants.VIEWPORT_HEIGHT;
+        float width = height * Constants.VIEWPORT_GUI_WIDTH / Constants.VIEWPORT_GUI_HEIGHT;
+        Vector2 center = level.player.position;
+        
+        activationView.set(center.x - width / 2, center.y - height / 2, width, height);
+        activationManager.update(activationView);
+    }
+    
+    /**
+     * Returns the manager switching physics bodies on and off
+     * @return the ActivationManager of the current level
+     */
+    public ActivationManager getActivationManager()
+    {
+        return activationManager;
+    }
+    
+    /**
+     * Advances the physics world in fixed steps. Frame time is collected until a
+     * whole step is due, so every step simulates the same time regardless of the
+     * frame rate. After a very long frame only PHYSICS_MAX_STEPS steps run and
+     * the rest of the time is dropped, so the game slows down instead of
+     * freezing while it catches up.
+     * 
+     * The steps run on the physics thread, which the next tick waits for, see
+     * collectPickups().
+     * 
+     * @param deltaTime time passed since the last frame
+     */
+    private void stepPhysics(float deltaTime)
+    {
+        physicsTime += deltaTime;
+        int steps = 0;
+        
+        while(physicsTime >= Constants.PHYSICS_STEP && steps < Constants.PHYSICS_MAX_STEPS)
+        {
+            physicsTime -= Constants.PHYSICS_STEP;
+            steps++;
+        }
+        
+        if(steps == Constants.PHYSICS_MAX_STEPS)
+            physicsTime = Math.min(physicsTime, Constants.PHYSICS_STEP);
+        
+        physicsThread.submit(steps);
+    }
+    
+    /**
+     * @return average time of a physics step since the level started, in milliseconds
+     */
+    public float getAveragePhysicsStepTime()
+    {
+        return physicsThread.getAverageStepTime();
+    }
+    
+    /**
+     * @return number of bodies in the backend, as of the last time the physics
+     *         thread was waited for. Safe to call while it steps.
+     */
+    public int getPhysicsBodyCount()
+    {
+        return physicsBodyCount;
+    }
+    
+    /**
+     * Moves moving objects between their last two physics steps for rendering.
+     * Does not wait for the physics thread: while it is still stepping, the
+     * objects are shown around the step before.
+     */
+    public void interpolate()
+    {
+        physicsThread.getSnapshot().interpolate(getPhysicsAlpha());
+    }
+    
+    /**
+     * @return true while the physics thread steps the bodies, which must not be read then
+     */
+    public boolean isPhysicsBusy()
+    {
+        return physicsThread.isBusy();
+    }
+    
+    /**
+     * Returns how far the time not yet simulated is into the next physics step.
+     * Rendering uses it to interpolate between the last two steps.
+     * 
+     * @return 0 right after a step, approaching 1 just before the next one
+     */
+    public float getPhysicsAlpha()
+    {
+        return physicsTime / Constants.PHYSICS_STEP;
     }
     
     /**
@@ -247,13 +553,117 @@ public class WorldController extends InputAdapter
             return false;
     }
 
+    /**
+     * Computes a checksum of the game state after a tick, see Replay
+     * 
+     * @return the checksum
+     */
+    private int checksum()
+    {
+        int hash = level.checksum();
+        hash = 31 * hash + score;
+        hash = 31 * hash + lives;
+        return hash;
+    }
+    
+    /**
+     * Starts recording a replay. The game restarts, so that the replay begins
+     * with the level.
+     */
+    public void startRecording()
+    {
+        playback = null;
+        recording = new Replay(0, physicsType);
+        init();
+        Gdx.app.debug(TAG, "Recording replay, seed " + seed);
+    }
+    
+    /**
+     * Stops recording and saves the replay to a local file
+     */
+    public void stopRecording()
+    {
+        if(recording == null)
+            return;
+        
+        replayFile = Gdx.files.local("replays/replay-" + TimeUtils.millis() + ".rpl");
+        recording.save(replayFile);
+        Gdx.app.log(TAG, "Saved replay of " + recording.size() + " ticks to " + replayFile.path());
+        recording = null;
+    }
+    
+    /**
+     * Restarts the game and plays the given replay back
+     * 
+     * @param replay the replay
+     */
+    public void startPlayback(Replay replay)
+    {
+        stopRecording();
+        playback = replay;
+        init();
+    }
+    
+    /**
+     * @return true while a replay is playing back
+     */
+    public boolean isPlayingBack()
+    {
+        return playback != null;
+    }
+    
+    /**
+     * @return first tick of the last replay whose checksum did not match, or -1
+     */
+    public int getDivergedTick()
+    {
+        return divergedTick;
+    }
+    
+    /**
+     * Frees the level and the physics world. A replay being recorded is saved.
+     */
+    @Override
+    public void dispose()
+    {
+        stopRecording();
+        physicsThread.dispose();
+        level.dispose();
+        physics.dispose();
+        disposed = true;
+    }
+    
     /**
      * Return player to the menu screen
      */
     private void backToMenu()
     {
+        if(game == null)
+        {
+            finished = true;
+            return;
+        }
+        
         game.setScreen(new MenuScreen(game));
     }
+    
+    /**
+     * @return true once the game is over or the goal was reached, when running without a game
+     */
+    public boolean isFinished()
+    {
+        return finished;
+    }
+    
+    /**
+     * Lets a bot play instead of the keyboard. Replays take precedence.
+     * 
+     * @param bot the bot, or null for the keyboard
+     */
+    public void setBot(Bot bot)
+    {
+        this.bot = bot;
+    }
     /**
      * Handles some special inputs for resetting game world and switching camera target
      * @param keycode the keycode for the pressed key
@@ -267,8 +677,39 @@ public class WorldController extends InputAdapter
             init();
             Gdx.app.debug(TAG, "Game world reset");
         }
-        // Toggle camera follow
-        else if (keycode == Keys.ENTER)
+        // Toggle render statistics overlay
+        else if (keycode == Keys.F3)
+        {
+            showRenderStats = !showRenderStats;
+        }
+        // Toggle dynamic resolution of the world pass
+        else if (keycode == Keys.F4)
+        {
+            dynamicResolution = !dynamicResolution;
+            Gdx.app.debug(TAG, "Dynamic resolution enabled: " + dynamicResolution);
+        }
+        // Start or stop recording a replay
+        else if (keycode == Keys.F5)
+        {
+            if(recording == null)
+                startRecording();
+            else
+                stopRecording();
+        }
+        // Play the last recorded replay back
+        else if (keycode == Keys.F6)
+        {
+            if(replayFile != null)
+                startPlayback(Replay.load(replayFile));
+        }
+        // Toggle fast forward of replays
+        else if (keycode == Keys.F7)
+        {
+            fastForward = !fastForward;
+            Gdx.app.debug(TAG, "Replay fast forward enabled: " + fastForward);
+        }
+        // Toggle camera follow, replays keep following the player
+        else if (keycode == Keys.ENTER && playback == null)
         {
             if(cameraHelper.hasTarget())
             {
@@ -287,18 +728,15 @@ public class WorldController extends InputAdapter
     }
 
     /**
-     * Handle input, allows camera testing by toggling camera target. Enables control of
-     * primary (non-gui) camera. If camera controls are not enabled (target is Player)
-     * and the goal has not been reached, then controls are handled by the Player class.
+     * Handle input for camera testing. Enables control of the primary (non-gui)
+     * camera while it does not follow the Player. The player's controls are
+     * read in update(), so that replays record them.
      * 
      * @param deltaTime time passed since the previous frame
      */
-    private void handleInput(float deltaTime)
+    private void handleCameraInput(float deltaTime)
     {
-        if (Gdx.app.getType() != ApplicationType.Desktop)
-            return;
-
-        if(!cameraHelper.hasTarget(level.player))
+        if(Gdx.app.getType() == ApplicationType.Desktop && !cameraHelper.hasTarget(level.player))
         {
             // Camera Controls (move)
             float camMoveSpeed = 5 * deltaTime;
@@ -328,11 +766,6 @@ public class WorldController extends InputAdapter
             if (Gdx.input.isKeyPressed(Keys.SLASH))
                 cameraHelper.setZoom(1);
         }
-        else if(!level.goalReached)
-        {
-            level.player.handleInput();
-        }
-        
     }
     
     /**
@@ -3,15 +3,28 @@ package com.jordanml.game.update;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.GlyphLayout;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.physics.box2d.Box2DDebugRenderer;
 import com.badlogic.gdx.utils.Align;
 import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.Pools;
 
 import com.jordanml.game.assets.Assets;
+import com.jordanml.game.level.ActivationManager;
+import com.jordanml.game.level.Level;
+import com.jordanml.game.physics.Box2DBackend;
+import com.jordanml.game.render.DynamicResolution;
+import com.jordanml.game.render.HudLayer;
+import com.jordanml.game.render.LandLayer;
+import com.jordanml.game.render.ParallaxBackground;
+import com.jordanml.game.render.RenderQueue;
+import com.jordanml.game.render.RenderStats;
 import com.jordanml.game.update.WorldController;
 import com.jordanml.game.util.Constants;
+import com.jordanml.game.util.RegionDrawer;
 
 /**
  * WorldRenderer handles all rendering for game world objects, including GUI elements and level elements.
@@ -21,8 +34,18 @@ public class WorldRenderer implements Disposable
 {
     private OrthographicCamera camera;
     private OrthographicCamera cameraGui;
-    private OrthographicCamera cameraBg;
     private SpriteBatch batch;
+    private RenderQueue renderQueue;
+    private LandLayer landLayer;
+    private ParallaxBackground background;
+    private RenderStats renderStats;
+    private HudLayer hudLayer;
+    private DynamicResolution worldResolution;
+    
+    // Reused to lay out the HUD text without allocating
+    private GlyphLayout glyphLayout;
+    private StringBuilder scoreText;
+    private Rectangle viewBounds;
     private WorldController worldController;
 
     private final boolean BOX2D_DEBUG = false;
@@ -42,6 +65,17 @@ public class WorldRenderer implements Disposable
     private void init()
     {
         batch = new SpriteBatch();
+        renderQueue = new RenderQueue();
+        landLayer = new LandLayer();
+        background = new ParallaxBackground();
+        background.addLayer(Assets.instance.decorations.background, Constants.BG_PARALLAX);
+        renderStats = new RenderStats();
+        hudLayer = new HudLayer();
+        worldResolution = new DynamicResolution(Constants.WORLD_MIN_SCALE, Constants.WORLD_MAX_SCALE,
+                Constants.WORLD_PASS_BUDGET, Constants.WORLD_FRAME_BUDGET);
+        glyphLayout = Pools.obtain(GlyphLayout.class);
+        scoreText = new StringBuilder(16);
+        viewBounds = new Rectangle();
         
         camera = new OrthographicCamera(Constants.VIEWPORT_WIDTH, Constants.VIEWPORT_HEIGHT);
         camera.position.set(0, 0, 0);
@@ -52,11 +86,6 @@ public class WorldRenderer implements Disposable
         cameraGui.setToOrtho(true); // flip y-axis
         cameraGui.update();
         
-        cameraBg = new OrthographicCamera(Constants.VIEWPORT_GUI_WIDTH, Constants.VIEWPORT_GUI_HEIGHT);
-        cameraBg.position.set(0, 0, 0);
-        //cameraBg.setToOrtho(true);
-        cameraBg.update();
-        
         b2Debug = new Box2DDebugRenderer();
     }
 
@@ -65,43 +94,154 @@ public class WorldRenderer implements Disposable
      */
     public void render()
     {
-        renderBackground(batch);
-        renderWorld(batch);
+        renderStats.setEnabled(worldController.showRenderStats);
+        worldResolution.setEnabled(worldController.dynamicResolution);
+        
+        // The world is drawn at a reduced resolution when the GPU cannot keep up,
+        // the GUI is always drawn at full resolution on top of it
+        renderStats.beginPass(batch);
+        prepareWorld();
+        worldResolution.begin();
+        drawWorld(batch);
+        worldResolution.end();
+        worldResolution.draw(batch);
+        renderStats.endPass(RenderStats.PASS.WORLD, batch);
+        
+        renderStats.beginPass(batch);
         renderGui(batch);
+        renderStats.endPass(RenderStats.PASS.GUI, batch);
+        
+        if(renderStats.isEnabled())
+            renderGuiStats(batch);
+        
         // TODO: remove b2Debug.render() call
-        if(BOX2D_DEBUG)
-            b2Debug.render(worldController.world, camera.combined);
+        if(BOX2D_DEBUG && worldController.physics instanceof Box2DBackend && !worldController.isPhysicsBusy())
+            b2Debug.render(((Box2DBackend) worldController.physics).getWorld(), camera.combined);
     }
 
     /**
-     * Renders the world using the given SpriteBatch
+     * Collects the world in the render queue and sorts it by layer and texture.
+     * The background is queued as well, behind everything else. Kept apart from
+     * drawWorld() so that only the draw calls are timed as the world pass.
+     */
+    private void prepareWorld()
+    {
+        Level level = worldController.level;
+        
+        // Draw moving objects between their last two physics steps
+        worldController.interpolate();
+        worldController.cameraHelper.applyTo(camera);
+        getViewBounds();
+        
+        // Terrain is compiled once per loaded level
+        if(landLayer.getLevel() != level)
+            landLayer.build(level);
+        
+        landLayer.setView(camera.combined, viewBounds);
+        background.setView(camera);
+        
+        renderQueue.begin();
+        renderQueue.submit(RenderQueue.LAYER_BACKGROUND, background);
+        renderQueue.submit(RenderQueue.LAYER_LAND, landLayer);
+        level.render(renderQueue, viewBounds);
+        renderQueue.end();
+    }
+    
+    /**
+     * Draws the world collected by prepareWorld()
      * 
      * @param batch SpriteBatch used to draw world objects
      */
-    private void renderWorld(SpriteBatch batch)
+    private void drawWorld(SpriteBatch batch)
     {
-        worldController.cameraHelper.applyTo(camera);
         batch.setProjectionMatrix(camera.combined);
         batch.begin();
-        worldController.level.render(batch);
+        renderQueue.flush(batch);
         batch.end();
     }
     
     /**
-     * Renders the GUI 
+     * Computes the area of the world covered by the camera, taking zoom into account
+     * 
+     * @return the visible area, padded by a small margin
+     */
+    private Rectangle getViewBounds()
+    {
+        float margin = 1.0f;
+        float width = camera.viewportWidth * camera.zoom;
+        float height = camera.viewportHeight * camera.zoom;
+        
+        return viewBounds.set(camera.position.x - width / 2 - margin, camera.position.y - height / 2 - margin,
+                width + 2 * margin, height + 2 * margin);
+    }
+    
+    /**
+     * Returns the queue used to draw the world
+     * @return the world RenderQueue, holds the sprite and flush counts of the last frame
+     */
+    public RenderQueue getRenderQueue()
+    {
+        return renderQueue;
+    }
+    
+    /**
+     * Renders the GUI. The GUI is cached in the HUD layer and only redrawn when
+     * the score, lives or game over state change.
+     * 
      * @param batch SpriteBatch used to draw world objects
      */
     private void renderGui(SpriteBatch batch)
+    {
+        if(hudLayer.update(worldController.score, worldController.lives, worldController.isGameOver()))
+        {
+            hudLayer.begin(batch, cameraGui);
+            renderGuiLives(batch);
+            renderGuiScore(batch);
+            renderGuiGameOverMessage(batch);
+            hudLayer.end(batch);
+        }
+        
+        hudLayer.draw(batch, cameraGui);
+    }
+    
+    /**
+     * Renders the render statistics overlay. Drawn in its own pass so that it
+     * does not show up in the GUI counters.
+     * 
+     * @param batch SpriteBatch used to draw the overlay
+     */
+    private void renderGuiStats(SpriteBatch batch)
     {
         batch.setProjectionMatrix(cameraGui.combined);
         batch.begin();
+        BitmapFont font = Assets.instance.fonts.defaultSmall;
+        float y = renderStats.draw(batch, font, renderQueue, 10, 60);
         
-        renderGuiLives(batch);
-        renderGuiScore(batch);
-        renderGuiGameOverMessage(batch);
+        scoreText.setLength(0);
+        scoreText.append("world scale ").append(MathUtils.round(worldResolution.getScale() * 100)).append("%  time ")
+                .append(MathUtils.round(worldResolution.getPassTime() * 10) / 10.0f).append(" ms");
+        font.draw(batch, scoreText, 10, y);
+        y += font.getLineHeight();
+        
+        ActivationManager activation = worldController.getActivationManager();
+        scoreText.setLength(0);
+        scoreText.append("bodies active ").append(activation.getActiveCount()).append(" / ")
+                .append(activation.getTotalCount()).append("  (").append(worldController.physics.getType())
+                .append(" ").append(worldController.getPhysicsBodyCount())
+                .append(")");
+        font.draw(batch, scoreText, 10, y);
         batch.end();
     }
     
+    /**
+     * Returns the render statistics. Counters are only collected while enabled.
+     * @return the RenderStats of this renderer
+     */
+    public RenderStats getRenderStats()
+    {
+        return renderStats;
+    }
+    
     /**
      * Renders the current score
      * 
@@ -123,8 +263,12 @@ public class WorldRenderer implements Disposable
             offsetY += MathUtils.sinDeg(shakeAlpha * 2.9f) * shakeDist;
         }*/
         
-        batch.draw(Assets.instance.candy.candycorn, x, y, 50, 50, 100, 100, 0.35f, -0.35f, 0);
-        Assets.instance.fonts.defaultBig.draw(batch, "" + worldController.score, x + 75, y + 37);
+        RegionDrawer.draw(batch, Assets.instance.candy.candycorn, x, y, 50, 50, 100, 100, 0.35f, -0.35f, 0);
+        
+        scoreText.setLength(0);
+        scoreText.append(worldController.score);
+        glyphLayout.setText(Assets.instance.fonts.defaultBig, scoreText);
+        Assets.instance.fonts.defaultBig.draw(batch, glyphLayout, x + 75, y + 37);
     }
     
     /**
@@ -139,7 +283,7 @@ public class WorldRenderer implements Disposable
         
         for (int i = 0; i < worldController.lives; i++)
         {
-            batch.draw(Assets.instance.gui.pumpkin, x + i * 50, y, 50, 50, 120, 100, 0.35f, -0.35f, 0);
+            RegionDrawer.draw(batch, Assets.instance.gui.pumpkin, x + i * 50, y, 50, 50, 120, 100, 0.35f, -0.35f, 0);
             batch.setColor(1, 1, 1, 1);
         }
     }
@@ -157,25 +301,12 @@ public class WorldRenderer implements Disposable
         {
             BitmapFont fontGameOver = Assets.instance.fonts.defaultBig;
             fontGameOver.setColor(1, 0.75f, 0.25f, 1);
-            fontGameOver.draw(batch, "GAME OVER", x, y, 0, Align.center, false);
+            glyphLayout.setText(fontGameOver, "GAME OVER", fontGameOver.getColor(), 0, Align.center, false);
+            fontGameOver.draw(batch, glyphLayout, x, y);
             fontGameOver.setColor(1, 1, 1, 1);
         }
     }
     
-    /**
-     * Renders the background
-     * 
-     * @param batch SpriteBatch used to render the background
-     */
-    private void renderBackground(SpriteBatch batch)
-    {
-        batch.setProjectionMatrix(cameraBg.combined);
-        batch.begin();
-        
-        batch.draw(Assets.instance.decorations.background, Constants.BG_X, Constants.BG_Y, 0, 0, Constants.VIEWPORT_GUI_WIDTH, Constants.VIEWPORT_GUI_HEIGHT, 1, 1, 0.0f);
-        batch.end();
-    }
-
     /**
      * Resizes the viewport
      * 
@@ -186,6 +317,8 @@ public class WorldRenderer implements Disposable
     {
         camera.viewportWidth = (Constants.VIEWPORT_HEIGHT / height) * width;
         camera.update();
+        hudLayer.resize(width, height);
+        worldResolution.resize(width, height);
     }
 
     /**
@@ -195,6 +328,10 @@ public class WorldRenderer implements Disposable
     public void dispose()
     {
         batch.dispose();
+        landLayer.dispose();
+        hudLayer.dispose();
+        worldResolution.dispose();
+        Pools.free(glyphLayout);
     }
 
 }
@@ -56,6 +56,10 @@ public class AudioManager
      */
     public void play(Sound sound, float volume, float pitch, float pan)
     {
+        // Sounds are not loaded when simulating without audio
+        if(sound == null)
+            return;
+        
         sound.play(1.0f * volume, pitch, pan);
     }
     
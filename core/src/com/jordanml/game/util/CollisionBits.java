@@ -0,0 +1,24 @@
+package com.jordanml.game.util;
+
+/**
+ * Box2D collision filter bits for every kind of level object. Each kind has one
+ * category bit, and its mask lists the categories it can touch. Box2D drops
+ * pairs whose masks exclude each other in the broadphase, before any contact
+ * is created or reported.
+ */
+public class CollisionBits
+{
+    // Categories, one bit per kind of object
+    public static final short PLAYER = 0x0001;
+    public static final short LAND = 0x0002;
+    public static final short BAT = 0x0004;
+
+    // Masks: the player stands on land. Pickups and the goal have no bodies.
+    public static final short MASK_PLAYER = LAND;
+    public static final short MASK_LAND = PLAYER;
+    // Bats do not interact with anything yet
+    public static final short MASK_BAT = 0;
+
+    // Static helper: prevent instantiation
+    private CollisionBits() {}
+}
@@ -17,6 +17,11 @@ public class Constants
     
     // Location of description file for texture atlas
     public static final String TEXTURE_ATLAS_OBJECTS = "images/damned.atlas";
+    // Same atlas with BC3 compressed KTX pages holding mipmaps, written by the desktop atlas packer
+    public static final String TEXTURE_ATLAS_OBJECTS_KTX = "images/damned-ktx.atlas";
+    
+    // Location of background image, kept out of the atlas so that it can repeat
+    public static final String TEXTURE_BACKGROUND = "images/background.png";
     
     // Location of level-01 image
     public static final String LEVEL_01 = "levels/level-01.png";
@@ -28,9 +33,42 @@ public class Constants
     public static final String SKIN_DAMNED_UI = "images/damned-ui.json";
     public static final String SKIN_LIBGDX_UI = "images/uiskin.json";
     
-    // Background
-    public static final float BG_X = -400.0f;
-    public static final float BG_Y = -240.0f;
+    // Background scroll speed relative to the camera, 0 stays fixed on screen
+    public static final float BG_PARALLAX = 0.2f;
+    
+    // Bounds of the world pass resolution, as a fraction of the window resolution
+    public static final float WORLD_MIN_SCALE = 0.5f;
+    public static final float WORLD_MAX_SCALE = 1.0f;
+    // GPU time the world pass may take before its resolution is lowered (in milliseconds)
+    public static final float WORLD_PASS_BUDGET = 10.0f;
+    // Frame time allowed instead where the GPU time cannot be measured (in milliseconds)
+    public static final float WORLD_FRAME_BUDGET = 1000.0f / 30.0f;
+    
+    // Size of a spatial grid cell used to find visible level objects (in meters)
+    public static final float GRID_CELL_SIZE = 4.0f;
+    
+    // Most objects one thread updates in one go, larger updates are split across threads
+    public static final int UPDATE_CHUNK_SIZE = 2048;
+    
+    // Gravity of the physics world (in m/s^2)
+    public static final float GRAVITY = -9.81f;
+    // Time simulated by one physics step (in seconds)
+    public static final float PHYSICS_STEP = 1.0f / 60.0f;
+    // Most physics steps run in one frame, the rest of a long frame is dropped
+    public static final int PHYSICS_MAX_STEPS = 5;
+    
+    // Size of a cell used to switch physics bodies on and off (in meters)
+    public static final float ACTIVATION_CELL_SIZE = 8.0f;
+    // Cells around the player's view whose bodies stay active
+    public static final int ACTIVATION_MARGIN = 1;
+    
+    // Time a frame may spend on fast forwarding a replay (in milliseconds)
+    public static final long REPLAY_FAST_FORWARD_BUDGET = 14;
+    
+    // Number of bats in a level's pool, the most that can fly at once
+    public static final int BAT_POOL_SIZE = 64;
+    // Average time between two bats spawning (in seconds)
+    public static final float BAT_SPAWN_INTERVAL = 2.5f;
     
     // Level constants
     public static final int MAX_LIVES = 3;
@@ -0,0 +1,83 @@
+package com.jordanml.game.util;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input.Keys;
+
+/**
+ * The player's controls for one tick, as a set of button bits. The game reads
+ * the controls from here instead of polling the keyboard, so that recorded
+ * controls can be fed back in for a replay.
+ */
+public class PlayerInput
+{
+    /**
+     * LEFT  - move left, held
+     * RIGHT - move right, held
+     * JUMP  - jump, pressed this tick
+     */
+    public static final int LEFT = 1;
+    public static final int RIGHT = 1 << 1;
+    public static final int JUMP = 1 << 2;
+
+    /**
+     * buttons - the buttons of the current tick
+     * pending - buttons pressed in frames since the last tick, see latchKeyboard()
+     */
+    private int buttons;
+    private int pending;
+
+    /**
+     * Remembers the buttons pressed this frame until the next readKeyboard().
+     * Presses only show for one frame, call this every frame so that those in
+     * frames without a tick are not lost.
+     */
+    public void latchKeyboard()
+    {
+        if(Gdx.input.isKeyJustPressed(Keys.SPACE))
+            pending |= JUMP;
+    }
+
+    /**
+     * Reads the buttons from the keyboard: the held buttons, and the ones
+     * pressed since the last tick
+     */
+    public void readKeyboard()
+    {
+        latchKeyboard();
+        buttons = pending;
+        pending = 0;
+
+        if(Gdx.input.isKeyPressed(Keys.LEFT))
+            buttons |= LEFT;
+        if(Gdx.input.isKeyPressed(Keys.RIGHT))
+            buttons |= RIGHT;
+    }
+
+    /**
+     * Sets the buttons, e.g. from a replay. Latched presses are dropped.
+     *
+     * @param buttons the button bits
+     */
+    public void set(int buttons)
+    {
+        this.buttons = buttons;
+        pending = 0;
+    }
+
+    /**
+     * @return the button bits
+     */
+    public int get()
+    {
+        return buttons;
+    }
+
+    /**
+     * @param button LEFT, RIGHT or JUMP
+     * @return true if the button is down
+     */
+    public boolean isDown(int button)
+    {
+        return (buttons & button) != 0;
+    }
+}
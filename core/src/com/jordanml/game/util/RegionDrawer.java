@@ -0,0 +1,217 @@
+package com.jordanml.game.util;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.AtlasRegion;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.MathUtils;
+
+/**
+ * Builds sprite vertices for texture regions. Unlike drawing straight from
+ * reg.getTexture(), this honours the whitespace offsets and 90 degree rotation
+ * that TexturePacker applies to AtlasRegions, so packed sprites keep their
+ * original size and orientation on screen.
+ */
+public class RegionDrawer
+{
+    // Floats per sprite: 4 vertices of (x, y, color, u, v)
+    public static final int SPRITE_SIZE = 20;
+
+    // Packed vertex color for untinted sprites
+    public static final float WHITE = Color.WHITE.toFloatBits();
+
+    // Scratch buffer used by draw()
+    private static final float[] vertices = new float[SPRITE_SIZE];
+
+    // Texture coordinates of the original image corners: bottom-left, top-left, top-right, bottom-right
+    private static final float[] cornerU = new float[4];
+    private static final float[] cornerV = new float[4];
+
+    // Static helper: prevent instantiation
+    private RegionDrawer() {}
+
+    /**
+     * Draws the given region with the given SpriteBatch. Arguments match
+     * SpriteBatch.draw(Texture, ...) without the source rectangle.
+     */
+    public static void draw(SpriteBatch batch, TextureRegion reg, float x, float y, float originX, float originY,
+            float width, float height, float scaleX, float scaleY, float rotation, boolean flipX, boolean flipY)
+    {
+        vertices(vertices, 0, reg, x, y, originX, originY, width, height, scaleX, scaleY, rotation, flipX, flipY,
+                batch.getPackedColor());
+        batch.draw(reg.getTexture(), vertices, 0, SPRITE_SIZE);
+    }
+
+    /**
+     * Draws the given region without flipping, tinted with the batch color
+     */
+    public static void draw(SpriteBatch batch, TextureRegion reg, float x, float y, float originX, float originY,
+            float width, float height, float scaleX, float scaleY, float rotation)
+    {
+        draw(batch, reg, x, y, originX, originY, width, height, scaleX, scaleY, rotation, false, false);
+    }
+
+    /**
+     * Writes the 20 vertex floats for the given region into out, starting at offset.
+     *
+     * @param color packed vertex color, e.g. Color.WHITE.toFloatBits()
+     */
+    public static void vertices(float[] out, int offset, TextureRegion reg, float x, float y, float originX,
+            float originY, float width, float height, float scaleX, float scaleY, float rotation, boolean flipX,
+            boolean flipY, float color)
+    {
+        boolean rotated = false;
+
+        // Shrink the quad to the packed area of a whitespace-stripped region
+        if(reg instanceof AtlasRegion)
+        {
+            AtlasRegion ar = (AtlasRegion) reg;
+            rotated = ar.rotate;
+
+            if(ar.packedWidth != ar.originalWidth || ar.packedHeight != ar.originalHeight)
+            {
+                float ratioX = width / ar.originalWidth;
+                float ratioY = height / ar.originalHeight;
+                float offsetX = (flipX ? ar.originalWidth - ar.offsetX - ar.packedWidth : ar.offsetX) * ratioX;
+                float offsetY = (flipY ? ar.originalHeight - ar.offsetY - ar.packedHeight : ar.offsetY) * ratioY;
+
+                x += offsetX;
+                y += offsetY;
+                originX -= offsetX;
+                originY -= offsetY;
+                width = ar.packedWidth * ratioX;
+                height = ar.packedHeight * ratioY;
+            }
+        }
+
+        // Corner positions relative to the origin
+        float worldOriginX = x + originX;
+        float worldOriginY = y + originY;
+        float fx = -originX;
+        float fy = -originY;
+        float fx2 = width - originX;
+        float fy2 = height - originY;
+
+        if(scaleX != 1 || scaleY != 1)
+        {
+            fx *= scaleX;
+            fy *= scaleY;
+            fx2 *= scaleX;
+            fy2 *= scaleY;
+        }
+
+        float x1, y1, x2, y2, x3, y3, x4, y4;
+
+        if(rotation != 0)
+        {
+            float cos = MathUtils.cosDeg(rotation);
+            float sin = MathUtils.sinDeg(rotation);
+
+            x1 = cos * fx - sin * fy;
+            y1 = sin * fx + cos * fy;
+            x2 = cos * fx - sin * fy2;
+            y2 = sin * fx + cos * fy2;
+            x3 = cos * fx2 - sin * fy2;
+            y3 = sin * fx2 + cos * fy2;
+            x4 = x1 + (x3 - x2);
+            y4 = y3 - (y2 - y1);
+        }
+        else
+        {
+            x1 = fx;
+            y1 = fy;
+            x2 = fx;
+            y2 = fy2;
+            x3 = fx2;
+            y3 = fy2;
+            x4 = fx2;
+            y4 = fy;
+        }
+
+        // Texture coordinates of the original image corners
+        float u = reg.getU();
+        float v = reg.getV();
+        float u2 = reg.getU2();
+        float v2 = reg.getV2();
+
+        if(rotated)
+        {
+            // Region is stored rotated 90 degrees counter clockwise
+            setCorners(u2, v2, u, v2, u, v, u2, v);
+        }
+        else
+        {
+            setCorners(u, v2, u, v, u2, v, u2, v2);
+        }
+
+        if(flipX)
+        {
+            swapCorners(0, 3);
+            swapCorners(1, 2);
+        }
+
+        if(flipY)
+        {
+            swapCorners(0, 1);
+            swapCorners(2, 3);
+        }
+
+        int i = offset;
+        out[i++] = x1 + worldOriginX;
+        out[i++] = y1 + worldOriginY;
+        out[i++] = color;
+        out[i++] = cornerU[0];
+        out[i++] = cornerV[0];
+
+        out[i++] = x2 + worldOriginX;
+        out[i++] = y2 + worldOriginY;
+        out[i++] = color;
+        out[i++] = cornerU[1];
+        out[i++] = cornerV[1];
+
+        out[i++] = x3 + worldOriginX;
+        out[i++] = y3 + worldOriginY;
+        out[i++] = color;
+        out[i++] = cornerU[2];
+        out[i++] = cornerV[2];
+
+        out[i++] = x4 + worldOriginX;
+        out[i++] = y4 + worldOriginY;
+        out[i++] = color;
+        out[i++] = cornerU[3];
+        out[i] = cornerV[3];
+    }
+
+    /**
+     * Writes vertices tinted white
+     */
+    public static void vertices(float[] out, int offset, TextureRegion reg, float x, float y, float originX,
+            float originY, float width, float height, float scaleX, float scaleY, float rotation, boolean flipX,
+            boolean flipY)
+    {
+        vertices(out, offset, reg, x, y, originX, originY, width, height, scaleX, scaleY, rotation, flipX, flipY,
+                WHITE);
+    }
+
+    private static void setCorners(float u1, float v1, float u2, float v2, float u3, float v3, float u4, float v4)
+    {
+        cornerU[0] = u1;
+        cornerV[0] = v1;
+        cornerU[1] = u2;
+        cornerV[1] = v2;
+        cornerU[2] = u3;
+        cornerV[2] = v3;
+        cornerU[3] = u4;
+        cornerV[3] = v4;
+    }
+
+    private static void swapCorners(int a, int b)
+    {
+        float u = cornerU[a];
+        float v = cornerV[a];
+        cornerU[a] = cornerU[b];
+        cornerV[a] = cornerV[b];
+        cornerU[b] = u;
+        cornerV[b] = v;
+    }
+}
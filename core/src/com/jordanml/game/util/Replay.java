@@ -0,0 +1,209 @@
+package com.jordanml.game.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.ByteArray;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.StreamUtils;
+
+import com.jordanml.game.physics.PhysicsBackend;
+
+/**
+ * A recorded game: the seed of the level's random numbers, the physics
+ * backend it ran on, and for every tick
+ * the frame time, the player's buttons and a checksum of the world after the
+ * tick. Playing the ticks back from the same seed repeats the game exactly,
+ * and the checksums show the first tick where it does not.
+ *
+ * Files hold a header followed by 9 bytes per tick, about 32 KB per minute
+ * at 60 ticks per second.
+ */
+public class Replay
+{
+    /**
+     * MAGIC   - first bytes of a replay file, "DRPL"
+     * VERSION - format version, raised when the format or the simulation changes
+     */
+    private static final int MAGIC = 0x4452504c;
+    private static final int VERSION = 5;
+
+    /**
+     * seed      - seed of the level's random numbers
+     * physics   - backend that simulated the game
+     * deltas    - frame time of each tick
+     * buttons   - player buttons of each tick, see PlayerInput
+     * checksums - checksum of the world after each tick
+     */
+    private final long seed;
+    private final PhysicsBackend.BACKEND_TYPE physics;
+    private final FloatArray deltas;
+    private final ByteArray buttons;
+    private final IntArray checksums;
+
+    /**
+     * Creates an empty replay, to be recorded
+     *
+     * @param seed    seed of the level's random numbers
+     * @param physics backend that simulates the game
+     */
+    public Replay(long seed, PhysicsBackend.BACKEND_TYPE physics)
+    {
+        this(seed, physics, 3600);
+    }
+
+    private Replay(long seed, PhysicsBackend.BACKEND_TYPE physics, int ticks)
+    {
+        this.seed = seed;
+        this.physics = physics;
+        deltas = new FloatArray(ticks);
+        buttons = new ByteArray(ticks);
+        checksums = new IntArray(ticks);
+    }
+
+    /**
+     * Adds a tick
+     *
+     * @param delta    frame time of the tick
+     * @param buttons  player buttons during the tick
+     * @param checksum checksum of the world after the tick
+     */
+    public void record(float delta, int buttons, int checksum)
+    {
+        deltas.add(delta);
+        this.buttons.add((byte) buttons);
+        checksums.add(checksum);
+    }
+
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    public PhysicsBackend.BACKEND_TYPE getPhysics()
+    {
+        return physics;
+    }
+
+    /**
+     * @return number of recorded ticks
+     */
+    public int size()
+    {
+        return deltas.size;
+    }
+
+    public float getDelta(int tick)
+    {
+        return deltas.get(tick);
+    }
+
+    public int getButtons(int tick)
+    {
+        return buttons.get(tick);
+    }
+
+    public int getChecksum(int tick)
+    {
+        return checksums.get(tick);
+    }
+
+    /**
+     * @return total frame time of all ticks, in seconds
+     */
+    public float getDuration()
+    {
+        float duration = 0;
+
+        for(int i = 0; i < deltas.size; i++)
+            duration += deltas.get(i);
+
+        return duration;
+    }
+
+    /**
+     * Writes the replay to a file
+     *
+     * @param file the file, replaced if it exists
+     */
+    public void save(FileHandle file)
+    {
+        DataOutputStream out = null;
+
+        try
+        {
+            out = new DataOutputStream(new BufferedOutputStream(file.write(false)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(seed);
+            out.writeByte(physics.ordinal());
+            out.writeInt(size());
+
+            for(int i = 0; i < size(); i++)
+            {
+                out.writeFloat(deltas.get(i));
+                out.writeByte(buttons.get(i));
+                out.writeInt(checksums.get(i));
+            }
+        }
+        catch(IOException e)
+        {
+            throw new GdxRuntimeException("Couldn't write replay " + file, e);
+        }
+        finally
+        {
+            StreamUtils.closeQuietly(out);
+        }
+    }
+
+    /**
+     * Reads a replay written by save()
+     *
+     * @param file the file
+     * @return the replay
+     */
+    public static Replay load(FileHandle file)
+    {
+        DataInputStream in = null;
+
+        try
+        {
+            in = new DataInputStream(new BufferedInputStream(file.read()));
+
+            if(in.readInt() != MAGIC)
+                throw new GdxRuntimeException(file + " is not a replay");
+
+            int version = in.readInt();
+            if(version != VERSION)
+                throw new GdxRuntimeException("Replay " + file + " has version " + version + ", expected " + VERSION);
+
+            long seed = in.readLong();
+            int backend = in.readByte();
+            PhysicsBackend.BACKEND_TYPE[] backends = PhysicsBackend.BACKEND_TYPE.values();
+            if(backend < 0 || backend >= backends.length)
+                throw new GdxRuntimeException("Replay " + file + " uses unknown physics backend " + backend);
+
+            int ticks = in.readInt();
+            Replay replay = new Replay(seed, backends[backend], ticks);
+
+            for(int i = 0; i < ticks; i++)
+                replay.record(in.readFloat(), in.readByte(), in.readInt());
+
+            return replay;
+        }
+        catch(IOException e)
+        {
+            throw new GdxRuntimeException("Couldn't read replay " + file, e);
+        }
+        finally
+        {
+            StreamUtils.closeQuietly(in);
+        }
+    }
+}
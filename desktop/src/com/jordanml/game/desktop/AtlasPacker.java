@@ -0,0 +1,610 @@
+package com.jordanml.game.desktop;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import javax.imageio.ImageIO;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData.Page;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData.Region;
+import com.badlogic.gdx.tools.texturepacker.TexturePacker;
+import com.badlogic.gdx.tools.texturepacker.TexturePacker.Settings;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.badlogic.gdx.utils.StreamUtils;
+
+/**
+ * Packs the raw game images into a texture atlas and writes a report of how
+ * well each page is filled. Few large, well-filled pages mean fewer texture
+ * switches (and SpriteBatch flushes) while rendering.
+ *
+ * Next to the PNG atlas, every page is also written as a gzipped KTX file
+ * (.zktx, which libGDX loads like .ktx) holding the full mipmap chain in the
+ * BC3 (S3TC DXT5) format, with a second atlas description pointing at them.
+ * BC3 takes a quarter of the memory of RGBA8888. The game loads the KTX atlas
+ * where S3TC is supported, and the PNG atlas otherwise.
+ *
+ * Packing needs no OpenGL context or natives: it runs before the game starts
+ * and is done when pack() returns.
+ */
+public class AtlasPacker
+{
+    // Largest page the packer may produce
+    public static final int MAX_PAGE_SIZE = 4096;
+
+    // Bytes per pixel of an RGBA8888 page
+    private static final int BYTES_PER_PIXEL = 4;
+
+    // Bytes per 4x4 block of a BC3 page, one byte per pixel
+    private static final int BC3_BLOCK_SIZE = 16;
+
+    // A full mipmap chain adds a third to the size of the base level
+    private static final double MIPMAP_FACTOR = 4.0 / 3.0;
+
+    // Appended to the atlas name for the description of the KTX pages
+    public static final String KTX_SUFFIX = "-ktx";
+
+    // Extension of the KTX pages, gzipped to keep the repository small
+    public static final String KTX_EXTENSION = ".zktx";
+
+    /**
+     * KTX_IDENTIFIER                  - first bytes of every KTX file
+     * KTX_ENDIANNESS                  - written in the file's byte order, tells readers which one it is
+     * GL_COMPRESSED_RGBA_S3TC_DXT5    - glInternalFormat of the pages, glType and glFormat are 0
+     * GL_RGBA                         - glBaseInternalFormat of the pages
+     */
+    private static final byte[] KTX_IDENTIFIER = { (byte) 0xAB, 'K', 'T', 'X', ' ', '1', '1', (byte) 0xBB, '\r', '\n',
+            0x1A, '\n' };
+    private static final int KTX_ENDIANNESS = 0x04030201;
+    private static final int GL_COMPRESSED_RGBA_S3TC_DXT5 = 0x83F3;
+    private static final int GL_RGBA = 0x1908;
+
+    // Static helper: prevent instantiation
+    private AtlasPacker() {}
+
+    /**
+     * Builds the packer settings used for the game atlas
+     *
+     * @param debug true to draw debug outlines around packed regions
+     * @return the packer settings
+     */
+    public static Settings createSettings(boolean debug)
+    {
+        Settings settings = new Settings();
+        settings.maxWidth = MAX_PAGE_SIZE;
+        settings.maxHeight = MAX_PAGE_SIZE;
+        // Trim transparent borders; AtlasRegion offsets restore the original size
+        settings.stripWhitespaceX = true;
+        settings.stripWhitespaceY = true;
+        // Allow regions to be stored rotated by 90 degrees for a tighter fit
+        settings.rotation = true;
+        // Identical images (e.g. repeated animation frames) share one region
+        settings.alias = true;
+        // Repeat edge pixels so linear filtering does not bleed between regions
+        settings.paddingX = 2;
+        settings.paddingY = 2;
+        settings.duplicatePadding = true;
+        // Mipmaps keep zoomed out views from shimmering and reading full-size pages
+        settings.filterMin = TextureFilter.MipMapLinearLinear;
+        settings.filterMag = TextureFilter.Linear;
+        settings.debug = debug;
+        return settings;
+    }
+
+    /**
+     * Packs all images in the input directory into an atlas, converts its pages
+     * to KTX and writes a page report next to it.
+     *
+     * @param settings   the packer settings
+     * @param input      directory holding the raw images
+     * @param output     directory receiving the atlas and its pages
+     * @param packName   name of the atlas file, without extension
+     */
+    public static void pack(Settings settings, String input, String output, String packName)
+    {
+        TexturePacker.process(settings, input, output, packName);
+
+        FileHandle atlasFile = new FileHandle(new File(output, packName + settings.atlasExtension));
+        writeKtx(atlasFile, new FileHandle(new File(output, packName + KTX_SUFFIX + settings.atlasExtension)));
+        String report = buildReport(atlasFile);
+
+        FileHandle reportFile = new FileHandle(new File(output, packName + "-report.txt"));
+        reportFile.writeString(report, false);
+    }
+
+    /**
+     * Writes every page of the given atlas as a gzipped BC3 KTX file with a
+     * full mipmap chain, and a copy of the atlas description that refers to the
+     * KTX pages. Pages are converted one after the other, on the calling thread.
+     *
+     * BC3 rather than ETC1, the only format the libGDX tools compress to,
+     * because ETC1 has no alpha channel.
+     *
+     * @param atlasFile    the packed atlas description
+     * @param ktxAtlasFile the atlas description to write for the KTX pages
+     */
+    public static void writeKtx(FileHandle atlasFile, FileHandle ktxAtlasFile)
+    {
+        TextureAtlasData data = new TextureAtlasData(atlasFile, atlasFile.parent(), false);
+        String description = atlasFile.readString();
+
+        for(Page page : data.getPages())
+        {
+            FileHandle png = page.textureFile;
+            FileHandle ktx = png.sibling(png.nameWithoutExtension() + KTX_EXTENSION);
+            writeKtxPage(png, ktx);
+
+            // Page names stand alone on their line
+            description = description.replace("\n" + png.name() + "\n", "\n" + ktx.name() + "\n");
+
+            if(description.startsWith(png.name() + "\n"))
+                description = ktx.name() + description.substring(png.name().length());
+        }
+
+        // Only written once every page exists
+        ktxAtlasFile.writeString(description, false);
+    }
+
+    /**
+     * Converts one PNG page to a gzipped BC3 KTX file. Each mipmap level halves
+     * the previous one, down to 1x1, the way KTXTextureData expects them.
+     *
+     * @param png the page
+     * @param ktx the file to write
+     */
+    private static void writeKtxPage(FileHandle png, FileHandle ktx)
+    {
+        BufferedImage image;
+
+        try
+        {
+            image = ImageIO.read(png.file());
+        }
+        catch(IOException e)
+        {
+            throw new GdxRuntimeException("Couldn't read atlas page " + png, e);
+        }
+
+        if(image == null)
+            throw new GdxRuntimeException("Atlas page " + png + " is not an image");
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int levels = 32 - Integer.numberOfLeadingZeros(Math.max(width, height));
+
+        // Header, then the size and blocks of every level
+        int size = 64;
+
+        for(int level = 0; level < levels; level++)
+            size += 4 + getBc3Size(Math.max(1, width >> level), Math.max(1, height >> level));
+
+        DataOutputStream out = null;
+
+        try
+        {
+            out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(ktx.write(false))));
+            // .zktx files start with the size of the unpacked KTX data
+            out.writeInt(size);
+            out.write(KTX_IDENTIFIER);
+            out.writeInt(KTX_ENDIANNESS);
+            // Compressed: glType 0, glTypeSize 1, glFormat 0
+            out.writeInt(0);
+            out.writeInt(1);
+            out.writeInt(0);
+            out.writeInt(GL_COMPRESSED_RGBA_S3TC_DXT5);
+            out.writeInt(GL_RGBA);
+            out.writeInt(width);
+            out.writeInt(height);
+            // A 2D texture: no depth, no array, one face, no key/value data
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeInt(1);
+            out.writeInt(levels);
+            out.writeInt(0);
+
+            int[] argb = image.getRGB(0, 0, width, height, null, 0, width);
+
+            for(int level = 0; level < levels; level++)
+            {
+                if(level > 0)
+                {
+                    argb = downsample(argb, width, height);
+                    width = Math.max(1, width >> 1);
+                    height = Math.max(1, height >> 1);
+                }
+
+                out.writeInt(getBc3Size(width, height));
+                writeBc3(out, argb, width, height);
+            }
+        }
+        catch(IOException e)
+        {
+            throw new GdxRuntimeException("Couldn't write KTX page " + ktx, e);
+        }
+        finally
+        {
+            StreamUtils.closeQuietly(out);
+        }
+    }
+
+    /**
+     * @return bytes of a BC3 image of the given size, partial blocks count as whole
+     */
+    private static int getBc3Size(int width, int height)
+    {
+        return ((width + 3) / 4) * ((height + 3) / 4) * BC3_BLOCK_SIZE;
+    }
+
+    /**
+     * Compresses an image to BC3 blocks, rows of blocks from the top like
+     * Pixmap. Blocks reaching past the edge repeat the edge pixels.
+     *
+     * @param out    stream receiving the blocks
+     * @param argb   pixels of the image, row by row
+     * @param width  width of the image
+     * @param height height of the image
+     */
+    private static void writeBc3(DataOutputStream out, int[] argb, int width, int height) throws IOException
+    {
+        int[] pixels = new int[16];
+        byte[] block = new byte[BC3_BLOCK_SIZE];
+
+        for(int by = 0; by < height; by += 4)
+        {
+            for(int bx = 0; bx < width; bx += 4)
+            {
+                for(int i = 0; i < 16; i++)
+                    pixels[i] = argb[Math.min(by + i / 4, height - 1) * width + Math.min(bx + i % 4, width - 1)];
+
+                encodeBc3Alpha(pixels, block);
+                encodeBc3Color(pixels, block);
+                out.write(block);
+            }
+        }
+    }
+
+    /**
+     * Writes the alpha half of a BC3 block: the highest and lowest alpha, then
+     * a 3 bit index per pixel into the eight values between them
+     *
+     * @param pixels the 16 pixels of the block, row by row
+     * @param block  receives the alpha in its first 8 bytes
+     */
+    private static void encodeBc3Alpha(int[] pixels, byte[] block)
+    {
+        int min = 255;
+        int max = 0;
+
+        for(int i = 0; i < 16; i++)
+        {
+            int alpha = pixels[i] >>> 24;
+            min = Math.min(min, alpha);
+            max = Math.max(max, alpha);
+        }
+
+        block[0] = (byte) max;
+        block[1] = (byte) min;
+        long indices = 0;
+
+        // With max > min, index 0 is max, 1 is min and 2 to 7 lie between them
+        if(max > min)
+        {
+            int[] palette = new int[8];
+            palette[0] = max;
+            palette[1] = min;
+
+            for(int k = 2; k < 8; k++)
+                palette[k] = ((8 - k) * max + (k - 1) * min) / 7;
+
+            for(int i = 0; i < 16; i++)
+                indices |= (long) closest(palette, pixels[i] >>> 24) << (3 * i);
+        }
+
+        for(int j = 0; j < 6; j++)
+            block[2 + j] = (byte) (indices >>> (8 * j));
+    }
+
+    private static int closest(int[] palette, int value)
+    {
+        int best = 0;
+
+        for(int k = 1; k < palette.length; k++)
+        {
+            if(Math.abs(palette[k] - value) < Math.abs(palette[best] - value))
+                best = k;
+        }
+
+        return best;
+    }
+
+    /**
+     * Writes the color half of a BC3 block: two RGB565 end points and a 2 bit
+     * index per pixel into the four colors on the line between them. The end
+     * points are the pixels furthest apart along the main axis of the block's
+     * colors. Fully transparent pixels are left out, their color never shows.
+     *
+     * @param pixels the 16 pixels of the block, row by row
+     * @param block  receives the color in its last 8 bytes
+     */
+    private static void encodeBc3Color(int[] pixels, byte[] block)
+    {
+        int opaque = 0;
+        float meanR = 0, meanG = 0, meanB = 0;
+
+        for(int i = 0; i < 16; i++)
+        {
+            if(pixels[i] >>> 24 == 0)
+                continue;
+
+            meanR += (pixels[i] >> 16) & 0xff;
+            meanG += (pixels[i] >> 8) & 0xff;
+            meanB += pixels[i] & 0xff;
+            opaque++;
+        }
+
+        if(opaque > 0)
+        {
+            meanR /= opaque;
+            meanG /= opaque;
+            meanB /= opaque;
+        }
+
+        // Covariance of the colors, its main eigenvector is found by power iteration
+        float rr = 0, rg = 0, rb = 0, gg = 0, gb = 0, bb = 0;
+
+        for(int i = 0; i < 16; i++)
+        {
+            if(pixels[i] >>> 24 == 0)
+                continue;
+
+            float r = ((pixels[i] >> 16) & 0xff) - meanR;
+            float g = ((pixels[i] >> 8) & 0xff) - meanG;
+            float b = (pixels[i] & 0xff) - meanB;
+            rr += r * r;
+            rg += r * g;
+            rb += r * b;
+            gg += g * g;
+            gb += g * b;
+            bb += b * b;
+        }
+
+        float axisR = 1, axisG = 1, axisB = 1;
+
+        for(int n = 0; n < 8; n++)
+        {
+            float r = rr * axisR + rg * axisG + rb * axisB;
+            float g = rg * axisR + gg * axisG + gb * axisB;
+            float b = rb * axisR + gb * axisG + bb * axisB;
+            float length = Math.max(Math.abs(r), Math.max(Math.abs(g), Math.abs(b)));
+
+            if(length == 0)
+                break;
+
+            axisR = r / length;
+            axisG = g / length;
+            axisB = b / length;
+        }
+
+        int low = 0;
+        int high = 0;
+        float lowDot = Float.MAX_VALUE;
+        float highDot = -Float.MAX_VALUE;
+
+        for(int i = 0; i < 16; i++)
+        {
+            if(opaque > 0 && pixels[i] >>> 24 == 0)
+                continue;
+
+            float dot = ((pixels[i] >> 16) & 0xff) * axisR + ((pixels[i] >> 8) & 0xff) * axisG
+                    + (pixels[i] & 0xff) * axisB;
+
+            if(dot < lowDot)
+            {
+                lowDot = dot;
+                low = pixels[i];
+            }
+            if(dot > highDot)
+            {
+                highDot = dot;
+                high = pixels[i];
+            }
+        }
+
+        int color0 = toRgb565(high);
+        int color1 = toRgb565(low);
+
+        // color0 > color1 selects four colors, equal end points need no indices
+        if(color0 < color1)
+        {
+            int swap = color0;
+            color0 = color1;
+            color1 = swap;
+        }
+
+        int indices = 0;
+
+        if(color0 != color1)
+        {
+            int[] palette = new int[4];
+            palette[0] = fromRgb565(color0);
+            palette[1] = fromRgb565(color1);
+            palette[2] = mix(palette[0], palette[1]);
+            palette[3] = mix(palette[1], palette[0]);
+
+            for(int i = 0; i < 16; i++)
+                indices |= closestColor(palette, pixels[i]) << (2 * i);
+        }
+
+        // Little endian, as the GPU reads it
+        block[8] = (byte) color0;
+        block[9] = (byte) (color0 >> 8);
+        block[10] = (byte) color1;
+        block[11] = (byte) (color1 >> 8);
+
+        for(int j = 0; j < 4; j++)
+            block[12 + j] = (byte) (indices >>> (8 * j));
+    }
+
+    private static int toRgb565(int argb)
+    {
+        int r = (((argb >> 16) & 0xff) * 31 + 127) / 255;
+        int g = (((argb >> 8) & 0xff) * 63 + 127) / 255;
+        int b = ((argb & 0xff) * 31 + 127) / 255;
+        return r << 11 | g << 5 | b;
+    }
+
+    private static int fromRgb565(int color)
+    {
+        int r = (color >> 11) & 0x1f;
+        int g = (color >> 5) & 0x3f;
+        int b = color & 0x1f;
+        return (r << 3 | r >> 2) << 16 | (g << 2 | g >> 4) << 8 | (b << 3 | b >> 2);
+    }
+
+    /**
+     * @return the color two thirds of the way from b to a
+     */
+    private static int mix(int a, int b)
+    {
+        int r = (2 * ((a >> 16) & 0xff) + ((b >> 16) & 0xff)) / 3;
+        int g = (2 * ((a >> 8) & 0xff) + ((b >> 8) & 0xff)) / 3;
+        int bl = (2 * (a & 0xff) + (b & 0xff)) / 3;
+        return r << 16 | g << 8 | bl;
+    }
+
+    private static int closestColor(int[] palette, int argb)
+    {
+        int best = 0;
+        int bestDistance = Integer.MAX_VALUE;
+
+        for(int k = 0; k < palette.length; k++)
+        {
+            int r = ((palette[k] >> 16) & 0xff) - ((argb >> 16) & 0xff);
+            int g = ((palette[k] >> 8) & 0xff) - ((argb >> 8) & 0xff);
+            int b = (palette[k] & 0xff) - (argb & 0xff);
+            int distance = r * r + g * g + b * b;
+
+            if(distance < bestDistance)
+            {
+                bestDistance = distance;
+                best = k;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Halves an image in both directions, a dimension of 1 stays 1. Colors are
+     * weighted by alpha, so transparent pixels do not darken the edges of
+     * sprites.
+     *
+     * @param argb   pixels of the image, row by row
+     * @param width  width of the image
+     * @param height height of the image
+     * @return pixels of the halved image
+     */
+    private static int[] downsample(int[] argb, int width, int height)
+    {
+        int halfWidth = Math.max(1, width >> 1);
+        int halfHeight = Math.max(1, height >> 1);
+        int[] half = new int[halfWidth * halfHeight];
+
+        for(int y = 0; y < halfHeight; y++)
+        {
+            for(int x = 0; x < halfWidth; x++)
+            {
+                long a = 0, r = 0, g = 0, b = 0;
+                int count = 0;
+
+                for(int sy = y * 2; sy < Math.min(y * 2 + 2, height); sy++)
+                {
+                    for(int sx = x * 2; sx < Math.min(x * 2 + 2, width); sx++)
+                    {
+                        int pixel = argb[sy * width + sx];
+                        int alpha = pixel >>> 24;
+                        a += alpha;
+                        r += ((pixel >> 16) & 0xff) * alpha;
+                        g += ((pixel >> 8) & 0xff) * alpha;
+                        b += (pixel & 0xff) * alpha;
+                        count++;
+                    }
+                }
+
+                half[y * halfWidth + x] = a == 0 ? 0 : (int) ((a + count / 2) / count) << 24
+                        | (int) ((r + a / 2) / a) << 16 | (int) ((g + a / 2) / a) << 8 | (int) ((b + a / 2) / a);
+            }
+        }
+
+        return half;
+    }
+
+    /**
+     * Builds a report listing the number of regions and the fill ratio of every
+     * page in the given atlas, followed by totals for the whole atlas.
+     *
+     * @param atlasFile the atlas description file
+     * @return the report text
+     */
+    public static String buildReport(FileHandle atlasFile)
+    {
+        TextureAtlasData data = new TextureAtlasData(atlasFile, atlasFile.parent(), false);
+
+        ObjectIntMap<Page> regionCounts = new ObjectIntMap<Page>();
+        ObjectIntMap<Page> usedPixels = new ObjectIntMap<Page>();
+        // Aliased regions point at the same pixels, count their area only once
+        Set<String> packedAreas = new HashSet<String>();
+
+        for(Region region : data.getRegions())
+        {
+            regionCounts.getAndIncrement(region.page, 0, 1);
+
+            if(packedAreas.add(region.page.textureFile.name() + ":" + region.left + "," + region.top))
+                usedPixels.getAndIncrement(region.page, 0, region.width * region.height);
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append("Atlas: ").append(atlasFile.name()).append('\n');
+
+        long totalPixels = 0;
+        long totalUsed = 0;
+        int totalRegions = 0;
+        int pageNumber = 1;
+
+        for(Page page : data.getPages())
+        {
+            int width = (int) page.width;
+            int height = (int) page.height;
+            long pixels = (long) width * height;
+            int used = usedPixels.get(page, 0);
+            int regions = regionCounts.get(page, 0);
+
+            report.append(String.format(Locale.US, "  page %d %-14s %4dx%-4d regions: %3d  fill: %5.1f%%%n", pageNumber++,
+                    page.textureFile.name(), width, height, regions, pixels > 0 ? 100.0 * used / pixels : 0.0));
+
+            totalPixels += pixels;
+            totalUsed += used;
+            totalRegions += regions;
+        }
+
+        double vram = totalPixels * BYTES_PER_PIXEL / (1024.0 * 1024.0);
+        double vramBc3 = totalPixels * BC3_BLOCK_SIZE / 16 / (1024.0 * 1024.0);
+
+        report.append(String.format(Locale.US, "Pages: %d  regions: %d  fill: %.1f%%%n", data.getPages().size,
+                totalRegions, totalPixels > 0 ? 100.0 * totalUsed / totalPixels : 0.0));
+        report.append(String.format(Locale.US, "VRAM with mipmaps: RGBA8888 %.1f MB, BC3 %.1f MB%n",
+                vram * MIPMAP_FACTOR, vramBc3 * MIPMAP_FACTOR));
+
+        return report.toString();
+    }
+}
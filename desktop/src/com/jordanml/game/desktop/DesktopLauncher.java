@@ -2,7 +2,6 @@ package com.jordanml.game.desktop;
 
 import com.badlogic.gdx.backends.lwjgl.LwjglApplication;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
-import com.badlogic.gdx.tools.texturepacker.TexturePacker;
 import com.badlogic.gdx.tools.texturepacker.TexturePacker.Settings;
 import com.jordanml.game.CSC361_F18_Moreno_Lacalle;
 
@@ -15,11 +14,8 @@ public class DesktopLauncher
 	{
 	    if(rebuildAtlas)
 	    {
-	        Settings settings = new Settings();
-            settings.maxWidth = 1024;
-            settings.maxHeight = 1024;
-            settings.debug = drawDebugOutline;
-            TexturePacker.process(settings, "assets-raw/images","../core/assets/images","damned");
+	        Settings settings = AtlasPacker.createSettings(drawDebugOutline);
+            AtlasPacker.pack(settings, "assets-raw/images","../core/assets/images","damned");
 	    }
 	    
 		LwjglApplicationConfiguration config = new LwjglApplicationConfiguration();
@@ -0,0 +1,341 @@
+package com.jordanml.game.desktop;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.TimeUtils;
+
+import com.jordanml.game.assets.Assets;
+import com.jordanml.game.level.Level;
+import com.jordanml.game.physics.PhysicsBackend;
+import com.jordanml.game.update.WorldController;
+import com.jordanml.game.util.Constants;
+import com.jordanml.game.util.PlayerInput;
+import com.jordanml.game.util.Replay;
+
+/**
+ * Runs the simulation without a window, as fast as the CPU allows, and
+ * reports the ticks per second. Nothing is rendered and no textures or sounds
+ * are loaded. The player is driven by a replay or by a simple bot.
+ *
+ * Usage: HeadlessLauncher [--level file] [--replay file | --bot] [--ticks n]
+ *                         [--worlds n] [--threads n] [--seed n] [--physics box2d|tiles]
+ *
+ * A replay runs until its last tick, a bot until the game ends or the tick
+ * limit is reached. The exit code is 1 if a replay diverged.
+ *
+ * With --worlds, that many independent games run on a pool of worker
+ * threads, one WorldController with its own level and physics backend each. Bots
+ * play game i from seed + i; with a replay, every world plays it back. Each
+ * world lives on a single worker from creation to disposal.
+ *
+ * --physics picks the backend bot games are simulated with; replays always
+ * run on the one they were recorded with. Each game reports the average time
+ * of a physics step, and the run reports the garbage collections it caused,
+ * to compare the backends.
+ */
+public class HeadlessLauncher extends ApplicationAdapter
+{
+    public static final String TAG = HeadlessLauncher.class.getName();
+
+    /**
+     * levelFile  - level image to load
+     * replayFile - replay to play back, or null to let the bot play
+     * maxTicks   - most ticks to run per world
+     * worlds     - number of games to run
+     * threads    - number of worker threads
+     * seed       - seed of the first bot game
+     * physics    - backend simulating bot games
+     * exitCode   - exit code of the process, set when the run is done
+     */
+    private final String levelFile;
+    private final String replayFile;
+    private final int maxTicks;
+    private final int worlds;
+    private final int threads;
+    private final long seed;
+    private final PhysicsBackend.BACKEND_TYPE physics;
+    private int exitCode;
+
+    public HeadlessLauncher(String levelFile, String replayFile, int maxTicks, int worlds, int threads, long seed,
+            PhysicsBackend.BACKEND_TYPE physics)
+    {
+        this.levelFile = levelFile;
+        this.replayFile = replayFile;
+        this.maxTicks = maxTicks;
+        this.worlds = worlds;
+        this.threads = threads;
+        this.seed = seed;
+        this.physics = physics;
+    }
+
+    public static void main(String[] arg)
+    {
+        String levelFile = Constants.LEVEL_01;
+        String replayFile = null;
+        int maxTicks = 60 * 60 * 10;
+        int worlds = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = TimeUtils.millis();
+        PhysicsBackend.BACKEND_TYPE physics = PhysicsBackend.BACKEND_TYPE.BOX2D;
+
+        for(int i = 0; i < arg.length; i++)
+        {
+            if(arg[i].equals("--level"))
+                levelFile = arg[++i];
+            else if(arg[i].equals("--replay"))
+                replayFile = arg[++i];
+            else if(arg[i].equals("--bot"))
+                replayFile = null;
+            else if(arg[i].equals("--ticks"))
+                maxTicks = Integer.parseInt(arg[++i]);
+            else if(arg[i].equals("--worlds"))
+                worlds = Integer.parseInt(arg[++i]);
+            else if(arg[i].equals("--threads"))
+                threads = Integer.parseInt(arg[++i]);
+            else if(arg[i].equals("--seed"))
+                seed = Long.parseLong(arg[++i]);
+            else if(arg[i].equals("--physics") && i + 1 < arg.length && arg[i + 1].equals("box2d"))
+                physics = PhysicsBackend.BACKEND_TYPE.BOX2D;
+            else if(arg[i].equals("--physics") && i + 1 < arg.length && arg[i + 1].equals("tiles"))
+                physics = PhysicsBackend.BACKEND_TYPE.TILES;
+            else
+            {
+                System.err.println("Usage: HeadlessLauncher [--level file] [--replay file | --bot] [--ticks n]"
+                        + " [--worlds n] [--threads n] [--seed n] [--physics box2d|tiles]");
+                System.exit(2);
+            }
+        }
+
+        HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+        // The whole run happens in create(), render() is never needed
+        config.renderInterval = -1;
+        new HeadlessApplication(new HeadlessLauncher(levelFile, replayFile, maxTicks, worlds,
+                Math.max(1, Math.min(threads, worlds)), seed, physics), config);
+    }
+
+    /**
+     * Runs the simulations and exits
+     */
+    @Override
+    public void create()
+    {
+        Gdx.app.setLogLevel(Application.LOG_INFO);
+        // Read-only after this, shared by all worlds
+        Assets.instance.initSimulation();
+
+        Replay replay = replayFile != null ? Replay.load(Gdx.files.local(replayFile)) : null;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        Array<Future<Run>> futures = new Array<Future<Run>>(worlds);
+        long start = TimeUtils.nanoTime();
+        long gcCount = getGcCount();
+        long gcTime = getGcTime();
+
+        for(int i = 0; i < worlds; i++)
+            futures.add(pool.submit(new Run(i, seed + i, replay)));
+
+        long totalTicks = 0;
+
+        try
+        {
+            for(Future<Run> future : futures)
+            {
+                Run run = future.get();
+                totalTicks += run.ticks;
+
+                if(worlds == 1 || run.divergedTick != -1)
+                    run.log();
+            }
+        }
+        catch(InterruptedException e)
+        {
+            throw new GdxRuntimeException("Interrupted while waiting for the simulations", e);
+        }
+        catch(ExecutionException e)
+        {
+            throw new GdxRuntimeException("Simulation failed", e.getCause());
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+
+        if(worlds > 1)
+        {
+            float seconds = TimeUtils.timeSinceNanos(start) / 1000000000.0f;
+            Gdx.app.log(TAG, String.format(Locale.US, "%s: %d worlds on %d threads, %d ticks in %.2f s, %.0f ticks/s",
+                    levelFile, worlds, threads, totalTicks, seconds, totalTicks / Math.max(seconds, 1e-6f)));
+        }
+
+        Gdx.app.log(TAG, String.format(Locale.US, "%d garbage collections, %d ms", getGcCount() - gcCount,
+                getGcTime() - gcTime));
+
+        Assets.instance.dispose();
+        Gdx.app.exit();
+    }
+
+    @Override
+    public void dispose()
+    {
+        System.exit(exitCode);
+    }
+
+    /**
+     * @return garbage collections since the JVM started, over all collectors
+     */
+    private static long getGcCount()
+    {
+        long count = 0;
+
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            count += Math.max(0, gc.getCollectionCount());
+
+        return count;
+    }
+
+    /**
+     * @return time spent collecting garbage since the JVM started, in milliseconds
+     */
+    private static long getGcTime()
+    {
+        long time = 0;
+
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            time += Math.max(0, gc.getCollectionTime());
+
+        return time;
+    }
+
+    /**
+     * One game, created, played and disposed on the worker thread that runs
+     * it. The results are read once it is done.
+     */
+    private class Run implements Callable<Run>
+    {
+        /**
+         * index        - number of the game, from 0
+         * seed         - seed of the game if the bot plays
+         * replay       - replay to play back, or null
+         * ticks        - ticks run
+         * nanos        - time taken
+         * bodies       - bodies in the world at the end
+         * physics      - backend that simulated the game
+         * stepTime     - average time of a physics step, in milliseconds
+         * score        - score at the end
+         * divergedTick - first tick that did not match the replay, or -1
+         */
+        private final int index;
+        private final long seed;
+        private final Replay replay;
+        int ticks;
+        long nanos;
+        int bodies;
+        PhysicsBackend.BACKEND_TYPE physics;
+        float stepTime;
+        int score;
+        int divergedTick = -1;
+
+        Run(int index, long seed, Replay replay)
+        {
+            this.index = index;
+            this.seed = seed;
+            this.replay = replay;
+        }
+
+        @Override
+        public Run call()
+        {
+            long start = TimeUtils.nanoTime();
+            WorldController worldController = new WorldController(null, levelFile, replay, seed,
+                    HeadlessLauncher.this.physics);
+
+            if(replay == null)
+                worldController.setBot(new RunRightBot());
+
+            while(ticks < maxTicks && !worldController.isFinished()
+                    && (replay == null || worldController.isPlayingBack()))
+            {
+                // Replays use their recorded frame times, the bot runs at the physics rate
+                worldController.update(Constants.PHYSICS_STEP);
+                ticks++;
+            }
+
+            nanos = TimeUtils.timeSinceNanos(start);
+            bodies = worldController.physics.getBodyCount();
+            physics = worldController.physics.getType();
+            stepTime = worldController.getAveragePhysicsStepTime();
+            score = worldController.score;
+
+            if(replay != null)
+                divergedTick = worldController.getDivergedTick();
+
+            worldController.dispose();
+            return this;
+        }
+
+        /**
+         * Logs the results, and sets the exit code if the replay diverged
+         */
+        void log()
+        {
+            float seconds = nanos / 1000000000.0f;
+            Gdx.app.log(TAG, String.format(Locale.US, "%s #%d (seed %d): %d ticks in %.2f s, %.0f ticks/s, "
+                    + "%s %d bodies, %.3f ms/step, score %d", levelFile, index, seed, ticks, seconds,
+                    ticks / Math.max(seconds, 1e-6f), physics, bodies, stepTime, score));
+
+            if(divergedTick != -1)
+            {
+                Gdx.app.error(TAG, "Replay " + replayFile + " diverged at tick " + divergedTick + " in world #" + index);
+                exitCode = 1;
+            }
+        }
+    }
+
+    /**
+     * Holds right, and jumps when the player stops making progress or every
+     * couple of seconds, to get over gaps
+     */
+    private static class RunRightBot implements WorldController.Bot
+    {
+        // Ticks without progress before jumping, and ticks between periodic jumps
+        private static final int STUCK_TICKS = 10;
+        private static final int JUMP_TICKS = 120;
+
+        private float lastX;
+        private int stuckTicks;
+        private int tick;
+
+        @Override
+        public int nextButtons(Level level)
+        {
+            float x = level.player.position.x;
+            stuckTicks = x > lastX + 0.01f ? 0 : stuckTicks + 1;
+            lastX = x;
+            tick++;
+
+            int buttons = PlayerInput.RIGHT;
+
+            if(stuckTicks > STUCK_TICKS || tick % JUMP_TICKS == 0)
+            {
+                buttons |= PlayerInput.JUMP;
+                stuckTicks = 0;
+            }
+
+            return buttons;
+        }
+    }
+}